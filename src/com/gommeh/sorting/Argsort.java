@@ -0,0 +1,297 @@
+package com.gommeh.sorting;
+
+import java.util.Comparator;
+
+/**
+ * Sorts a permutation instead of the items themselves: argsort() returns
+ * the int[] p for which a[p[0]], a[p[1]], ... is in sorted order and leaves
+ * a alone, so arrays kept in parallel with it stay lined up. apply() then
+ * rearranges any number of such column arrays into that order, in place.
+ * <p>
+ * argsort() is a stable top-down merge sort over an int[] of indices, so
+ * nothing gets boxed; it merges back and forth between two index arrays
+ * instead of copying into the aux array first, finishes small ranges with
+ * insertion sort and skips merges whose halves are already in order.
+ * apply() follows the permutation's cycles and marks where it has been by
+ * flipping the sign of the entries of p, which it puts back afterwards, so
+ * it needs no extra memory.
+ */
+public class Argsort {
+
+	// ranges of at most this many indices more than one are insertion sorted
+	private static final int INSERTION_SORT_CUTOFF = 12;
+
+	// don't instantiate
+	private Argsort() { }
+
+	/**
+	 * @param a = the array, which isn't modified
+	 * @return p such that a[p[0]] <= a[p[1]] <= ..., with equal items in their original order
+	 */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	public static int[] argsort(Comparable[] a) {
+		return argsort(a, Comparator.naturalOrder());
+	}
+
+	public static <T> int[] argsort(T[] a, Comparator<? super T> c) {
+		int[] perm = identity(a.length);
+		int[] aux = perm.clone();
+		sort(a, aux, perm, 0, a.length - 1, c);
+		return perm;
+	}
+
+	/**
+	 * sorts the indices in dst[lo..hi] by the keys they point at, using
+	 * src[lo..hi] (which holds the same indices) as scratch
+	 */
+	private static <T> void sort(T[] a, int[] src, int[] dst, int lo, int hi, Comparator<? super T> c) {
+		if (hi <= lo + INSERTION_SORT_CUTOFF) {
+			for (int i = lo + 1; i <= hi; i++) {
+				int v = dst[i], j = i;
+				for (; j > lo && less(c, a[v], a[dst[j-1]]); j--)
+					dst[j] = dst[j-1];
+				dst[j] = v;
+			}
+			return;
+		}
+		if (SortingAlgorithm.METRICS) SortingAlgorithm.enter();
+		int mid = lo + (hi - lo) / 2;
+		sort(a, dst, src, lo, mid, c);
+		sort(a, dst, src, mid+1, hi, c);
+		if (!less(c, a[src[mid+1]], a[src[mid]])) // the halves are already in order
+			System.arraycopy(src, lo, dst, lo, hi - lo + 1);
+		else {
+			int i = lo, j = mid+1;
+			for (int k = lo; k <= hi; k++) {
+				if      (i > mid)                          dst[k] = src[j++];
+				else if (j > hi)                           dst[k] = src[i++];
+				else if (less(c, a[src[j]], a[src[i]]))    dst[k] = src[j++];
+				else                                       dst[k] = src[i++];
+			}
+		}
+		if (SortingAlgorithm.METRICS) {
+			SortingAlgorithm.countWrites(hi - lo + 1);
+			SortingAlgorithm.exit();
+		}
+	}
+
+	/**
+	 * @param keys = the keys, which aren't modified; ordered like Double.compare()
+	 * @return p such that keys[p[0]] <= keys[p[1]] <= ..., with equal keys in their original order
+	 */
+	public static int[] argsort(double[] keys) {
+		int[] perm = identity(keys.length);
+		int[] aux = perm.clone();
+		sort(keys, aux, perm, 0, keys.length - 1);
+		return perm;
+	}
+
+	private static void sort(double[] keys, int[] src, int[] dst, int lo, int hi) {
+		if (hi <= lo + INSERTION_SORT_CUTOFF) {
+			for (int i = lo + 1; i <= hi; i++) {
+				int v = dst[i], j = i;
+				for (; j > lo && less(keys[v], keys[dst[j-1]]); j--)
+					dst[j] = dst[j-1];
+				dst[j] = v;
+			}
+			return;
+		}
+		if (SortingAlgorithm.METRICS) SortingAlgorithm.enter();
+		int mid = lo + (hi - lo) / 2;
+		sort(keys, dst, src, lo, mid);
+		sort(keys, dst, src, mid+1, hi);
+		if (!less(keys[src[mid+1]], keys[src[mid]])) // the halves are already in order
+			System.arraycopy(src, lo, dst, lo, hi - lo + 1);
+		else {
+			int i = lo, j = mid+1;
+			for (int k = lo; k <= hi; k++) {
+				if      (i > mid)                               dst[k] = src[j++];
+				else if (j > hi)                                dst[k] = src[i++];
+				else if (less(keys[src[j]], keys[src[i]]))      dst[k] = src[j++];
+				else                                            dst[k] = src[i++];
+			}
+		}
+		if (SortingAlgorithm.METRICS) {
+			SortingAlgorithm.countWrites(hi - lo + 1);
+			SortingAlgorithm.exit();
+		}
+	}
+
+	/**
+	 * @param keys = the keys, which aren't modified
+	 * @return p such that keys[p[0]] <= keys[p[1]] <= ..., with equal keys in their original order
+	 */
+	public static int[] argsort(long[] keys) {
+		int[] perm = identity(keys.length);
+		int[] aux = perm.clone();
+		sort(keys, aux, perm, 0, keys.length - 1);
+		return perm;
+	}
+
+	private static void sort(long[] keys, int[] src, int[] dst, int lo, int hi) {
+		if (hi <= lo + INSERTION_SORT_CUTOFF) {
+			for (int i = lo + 1; i <= hi; i++) {
+				int v = dst[i], j = i;
+				for (; j > lo && less(keys[v], keys[dst[j-1]]); j--)
+					dst[j] = dst[j-1];
+				dst[j] = v;
+			}
+			return;
+		}
+		if (SortingAlgorithm.METRICS) SortingAlgorithm.enter();
+		int mid = lo + (hi - lo) / 2;
+		sort(keys, dst, src, lo, mid);
+		sort(keys, dst, src, mid+1, hi);
+		if (!less(keys[src[mid+1]], keys[src[mid]])) // the halves are already in order
+			System.arraycopy(src, lo, dst, lo, hi - lo + 1);
+		else {
+			int i = lo, j = mid+1;
+			for (int k = lo; k <= hi; k++) {
+				if      (i > mid)                               dst[k] = src[j++];
+				else if (j > hi)                                dst[k] = src[i++];
+				else if (less(keys[src[j]], keys[src[i]]))      dst[k] = src[j++];
+				else                                            dst[k] = src[i++];
+			}
+		}
+		if (SortingAlgorithm.METRICS) {
+			SortingAlgorithm.countWrites(hi - lo + 1);
+			SortingAlgorithm.exit();
+		}
+	}
+
+	/**
+	 * rearranges a in place so that the new a[i] is the old a[perm[i]],
+	 * e.g. into sorted order with the result of argsort(). Call it once per
+	 * array to co-sort several arrays that are indexed in parallel.
+	 * @param perm = a permutation of 0..a.length-1; it's modified while this
+	 *        runs and restored before it returns
+	 * @param a = the array
+	 * @throws IllegalArgumentException if perm isn't a permutation of 0..a.length-1,
+	 *         in which case a is left in an unspecified order
+	 */
+	public static void apply(int[] perm, Object[] a) {
+		int n = check(perm, a.length);
+		for (int i = 0; i < n; i++) {
+			if (perm[i] < 0) continue; // already moved by an earlier cycle
+			Object first = a[i];
+			for (int j = i; ; ) {
+				int k = perm[j];
+				if (k < 0) notAPermutation(perm); // a second way into this cycle, so some index repeats
+				perm[j] = ~k;
+				if (k == i) {
+					a[j] = first;
+					break;
+				}
+				a[j] = a[k];
+				j = k;
+			}
+		}
+		restore(perm);
+		if (SortingAlgorithm.METRICS) SortingAlgorithm.countWrites(n);
+	}
+
+	public static void apply(int[] perm, int[] a) {
+		int n = check(perm, a.length);
+		for (int i = 0; i < n; i++) {
+			if (perm[i] < 0) continue;
+			int first = a[i];
+			for (int j = i; ; ) {
+				int k = perm[j];
+				if (k < 0) notAPermutation(perm);
+				perm[j] = ~k;
+				if (k == i) {
+					a[j] = first;
+					break;
+				}
+				a[j] = a[k];
+				j = k;
+			}
+		}
+		restore(perm);
+		if (SortingAlgorithm.METRICS) SortingAlgorithm.countWrites(n);
+	}
+
+	public static void apply(int[] perm, long[] a) {
+		int n = check(perm, a.length);
+		for (int i = 0; i < n; i++) {
+			if (perm[i] < 0) continue;
+			long first = a[i];
+			for (int j = i; ; ) {
+				int k = perm[j];
+				if (k < 0) notAPermutation(perm);
+				perm[j] = ~k;
+				if (k == i) {
+					a[j] = first;
+					break;
+				}
+				a[j] = a[k];
+				j = k;
+			}
+		}
+		restore(perm);
+		if (SortingAlgorithm.METRICS) SortingAlgorithm.countWrites(n);
+	}
+
+	public static void apply(int[] perm, double[] a) {
+		int n = check(perm, a.length);
+		for (int i = 0; i < n; i++) {
+			if (perm[i] < 0) continue;
+			double first = a[i];
+			for (int j = i; ; ) {
+				int k = perm[j];
+				if (k < 0) notAPermutation(perm);
+				perm[j] = ~k;
+				if (k == i) {
+					a[j] = first;
+					break;
+				}
+				a[j] = a[k];
+				j = k;
+			}
+		}
+		restore(perm);
+		if (SortingAlgorithm.METRICS) SortingAlgorithm.countWrites(n);
+	}
+
+	private static int[] identity(int n) {
+		int[] perm = new int[n];
+		for (int i = 0; i < n; i++) perm[i] = i;
+		return perm;
+	}
+
+	/**
+	 * throws an IllegalArgumentException unless perm has n entries, all between 0 and n-1
+	 * @return n
+	 */
+	private static int check(int[] perm, int n) {
+		if (perm.length != n)
+			throw new IllegalArgumentException("permutation has " + perm.length + " entries for an array of " + n);
+		for (int k : perm)
+			if (k < 0 || k >= n) throw new IllegalArgumentException("permutation entry out of range: " + k);
+		return n;
+	}
+
+	// undoes the marks apply() leaves on the entries it has visited
+	private static void restore(int[] perm) {
+		for (int i = 0; i < perm.length; i++)
+			if (perm[i] < 0) perm[i] = ~perm[i];
+	}
+
+	// a cycle ran into an entry it had already visited
+	private static void notAPermutation(int[] perm) {
+		restore(perm);
+		throw new IllegalArgumentException("not a permutation of 0.." + (perm.length - 1));
+	}
+
+	private static <T> boolean less(Comparator<? super T> c, T v, T w) {
+		return SortingAlgorithm.less(c, v, w);
+	}
+
+	private static boolean less(double v, double w) {
+		return SortingAlgorithm.less(v, w);
+	}
+
+	private static boolean less(long v, long w) {
+		return SortingAlgorithm.less(v, w);
+	}
+}
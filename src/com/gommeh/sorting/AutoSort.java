@@ -0,0 +1,178 @@
+package com.gommeh.sorting;
+
+import java.util.Comparator;
+
+/**
+ * Picks one of the other algorithms for each call by sampling the input
+ * first: how big it is, whether it's already (nearly) in order, how many
+ * duplicate keys it has, whether the caller needs a stable sort and whether
+ * the keys are primitive. Sampling looks at a fixed number of positions, so
+ * it costs the same for any N.
+ * <p>
+ * Objects: tiny arrays get insertion sort, presorted ones NaturalMergeSort,
+ * stable sorts MergeSort, inputs with many duplicates 3-way quicksort and
+ * everything else plain quicksort. Primitives: tiny arrays get insertion
+ * sort, arrays that are already sorted are left alone, long ones get LSD
+ * radix sort and everything else quicksort.
+ * <p>
+ * Each decision, with the sampled numbers behind it, is reported to the
+ * registered SortMetrics through onDecision(). The thresholds below came
+ * from "java com.gommeh.sorting.SortBenchmark auto".
+ */
+public class AutoSort extends SortingAlgorithm {
+
+	// arrays of at most this many items are insertion sorted
+	static final int INSERTION_MAX = 32;
+
+	// primitive arrays of at least this many items are radix sorted
+	static final int RADIX_MIN = 1 << 10;
+
+	// at most this fraction of sampled neighbours out of order counts as presorted
+	static final double PRESORTED_MAX = 0.05;
+
+	// at least this fraction of equal neighbours in the sorted sample calls for 3-way partitioning
+	static final double DUPLICATES_MIN = 0.25;
+
+	// how many neighbour pairs and keys get sampled
+	private static final int SAMPLE = 64;
+
+	private static final SortingAlgorithm INSERTION = new InsertionSort();
+	private static final SortingAlgorithm MERGE = new MergeSort();
+	private static final SortingAlgorithm NATURAL = new NaturalMergeSort();
+	private static final SortingAlgorithm QUICK = new Quicksort();
+	private static final SortingAlgorithm QUICK_3WAY = new Quicksort(Quicksort.Partitioning.THREE_WAY);
+	private static final SortingAlgorithm RADIX = new LSDRadixSort();
+
+	private final boolean stable;
+
+	/**
+	 * sorts objects stably, like Arrays.sort() does
+	 */
+	public AutoSort() {
+		this(true);
+	}
+
+	/**
+	 * @param stable = whether equal objects have to keep their relative order;
+	 *        false lets it use quicksort. Primitives don't care either way.
+	 */
+	public AutoSort(boolean stable) {
+		this.stable = stable;
+	}
+
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	public void sort(Comparable[] a) {
+		choose(a, 0, a.length, Comparator.naturalOrder()).sort(a);
+	}
+
+	public <T> void sort(T[] a, int from, int to, Comparator<? super T> c) {
+		checkRange(a.length, from, to);
+		choose(a, from, to, c).sort(a, from, to, c);
+	}
+
+	/**
+	 * samples a[from..to-1] and picks the algorithm for it
+	 */
+	private <T> SortingAlgorithm choose(T[] a, int from, int to, Comparator<? super T> c) {
+		int n = to - from;
+		if (n <= INSERTION_MAX) return decide(INSERTION, "InsertionSort", n, "n <= " + INSERTION_MAX);
+
+		// sample SAMPLE neighbour pairs spread evenly over the range
+		int step = Math.max(1, (n - 1) / SAMPLE), pairs = 0, up = 0, down = 0;
+		for (int i = from; i + 1 < to && pairs < SAMPLE; i += step, pairs++) {
+			int cmp = c.compare(a[i], a[i+1]);
+			if (cmp < 0) up++;
+			else if (cmp > 0) down++;
+		}
+		if (down <= PRESORTED_MAX * pairs || up <= PRESORTED_MAX * pairs)
+			return decide(NATURAL, "NaturalMergeSort", n, "presorted: %1$d/%3$d ascending, %2$d/%3$d descending", up, down, pairs);
+		if (stable) return decide(MERGE, "MergeSort", n, "stable sort required");
+
+		// sort a sample of the keys and see how many of its neighbours are equal
+		Object[] s = new Object[Math.min(n, SAMPLE)];
+		step = n / s.length;
+		for (int k = 0; k < s.length; k++) s[k] = a[from + k * step];
+		@SuppressWarnings("unchecked")
+		T[] sample = (T[]) s;
+		InsertionSort.sortRange(sample, 0, sample.length - 1, c);
+		int equal = 0;
+		for (int k = 1; k < sample.length; k++)
+			if (c.compare(sample[k-1], sample[k]) == 0) equal++;
+		String duplicates = "%d/%d sampled neighbours equal";
+		if (equal >= DUPLICATES_MIN * (sample.length - 1))
+			return decide(QUICK_3WAY, "Quicksort(THREE_WAY)", n, duplicates, equal, sample.length - 1, 0);
+		return decide(QUICK, "Quicksort(HOARE)", n, duplicates, equal, sample.length - 1, 0);
+	}
+
+	public void sort(int[] a) {
+		int n = a.length;
+		if (n <= INSERTION_MAX) {
+			decide(INSERTION, "InsertionSort", n, "n <= " + INSERTION_MAX).sort(a);
+			return;
+		}
+		int step = Math.max(1, (n - 1) / SAMPLE), pairs = 0, down = 0;
+		for (int i = 0; i + 1 < n && pairs < SAMPLE; i += step, pairs++)
+			if (less(a[i+1], a[i])) down++;
+		// the sample is only a hint; leave the array alone only if all of it is in order
+		if (down == 0 && isSorted(a)) {
+			decide(null, "none", n, "already sorted");
+			return;
+		}
+		sortPrimitive(n, down, pairs).sort(a);
+	}
+
+	public void sort(long[] a) {
+		int n = a.length;
+		if (n <= INSERTION_MAX) {
+			decide(INSERTION, "InsertionSort", n, "n <= " + INSERTION_MAX).sort(a);
+			return;
+		}
+		int step = Math.max(1, (n - 1) / SAMPLE), pairs = 0, down = 0;
+		for (int i = 0; i + 1 < n && pairs < SAMPLE; i += step, pairs++)
+			if (less(a[i+1], a[i])) down++;
+		if (down == 0 && isSorted(a)) {
+			decide(null, "none", n, "already sorted");
+			return;
+		}
+		sortPrimitive(n, down, pairs).sort(a);
+	}
+
+	public void sort(double[] a) {
+		int n = a.length;
+		if (n <= INSERTION_MAX) {
+			decide(INSERTION, "InsertionSort", n, "n <= " + INSERTION_MAX).sort(a);
+			return;
+		}
+		int step = Math.max(1, (n - 1) / SAMPLE), pairs = 0, down = 0;
+		for (int i = 0; i + 1 < n && pairs < SAMPLE; i += step, pairs++)
+			if (less(a[i+1], a[i])) down++;
+		if (down == 0 && isSorted(a)) {
+			decide(null, "none", n, "already sorted");
+			return;
+		}
+		sortPrimitive(n, down, pairs).sort(a);
+	}
+
+	// the choice for a primitive array that isn't tiny and isn't already sorted
+	private SortingAlgorithm sortPrimitive(int n, int down, int pairs) {
+		if (n >= RADIX_MIN) return decide(RADIX, "LSDRadixSort", n, "n >= " + RADIX_MIN + ", %d/%d sampled neighbours descending", down, pairs, 0);
+		return decide(QUICK, "Quicksort(HOARE)", n, "n < " + RADIX_MIN + ", %d/%d sampled neighbours descending", down, pairs, 0);
+	}
+
+	// a decision whose reason is a constant
+	private static SortingAlgorithm decide(SortingAlgorithm engine, String name, int n, String reason) {
+		return decide(engine, name, n, reason, 0, 0, 0);
+	}
+
+	/**
+	 * reports the decision to the registered SortMetrics, if any. The reason
+	 * is a format string for x, y and z, and is only formatted when there's
+	 * a listener, so an unobserved sort doesn't pay for it
+	 * @return the algorithm, so callers can sort with it straight away
+	 */
+	private static SortingAlgorithm decide(SortingAlgorithm engine, String name, int n, String reason, int x, int y, int z) {
+		SortMetrics m = getMetrics();
+		if (m != null) m.onDecision(name, n, String.format(reason, x, y, z));
+		return engine;
+	}
+}
@@ -0,0 +1,122 @@
+package com.gommeh.sorting;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+/**
+ * Hands out auxiliary arrays for merging, keeping one growable buffer per
+ * thread so that repeated sorts of similar sizes stop allocating after the
+ * first call. Requests longer than maxPooledLength get a one-off array that
+ * is not kept, so one huge sort can't pin a huge buffer to a thread forever.
+ * So does a request made while the thread's buffer is still out, e.g. from
+ * a compareTo() that sorts again in the middle of a sort, so two sorts
+ * never share a buffer.
+ */
+@SuppressWarnings("rawtypes")
+public class AuxBufferPool {
+
+	public static final int DEFAULT_MAX_POOLED_LENGTH = 1 << 20;
+
+	// the size of an array header, and of a slot: 4 bytes with compressed references, 8 without
+	private static final int ARRAY_HEADER_BYTES = 16;
+	private static final int REFERENCE_BYTES = referenceBytes();
+
+	// a thread's pooled buffer, and whether it's lent out right now
+	private static final class Slot {
+		Comparable[] buffer;
+		boolean borrowed;
+	}
+
+	private final int maxPooledLength;
+	private final ThreadLocal<Slot> slots = ThreadLocal.withInitial(Slot::new);
+	private final AtomicLong allocations = new AtomicLong();
+	private final AtomicLong bytes = new AtomicLong();
+
+	public AuxBufferPool() {
+		this(DEFAULT_MAX_POOLED_LENGTH);
+	}
+
+	/**
+	 * @param maxPooledLength = the longest buffer a thread is allowed to keep
+	 */
+	public AuxBufferPool(int maxPooledLength) {
+		if (maxPooledLength < 0) throw new IllegalArgumentException("maxPooledLength must not be negative: " + maxPooledLength);
+		this.maxPooledLength = maxPooledLength;
+	}
+
+	/**
+	 * returns a buffer of at least the given length, reusing this thread's
+	 * pooled buffer when it is big enough and growing it (by doubling, up to
+	 * maxPooledLength) when it isn't. If the pooled buffer hasn't been
+	 * released yet, the caller gets a one-off array instead.
+	 * @param length = how many entries the caller needs
+	 * @return the buffer; pass it back to release() when done
+	 */
+	public Comparable[] acquire(int length) {
+		Slot slot = slots.get();
+		if (slot.borrowed || length > maxPooledLength) return allocate(length);
+
+		Comparable[] buffer = slot.buffer;
+		if (buffer == null || buffer.length < length) {
+			int capacity = buffer == null ? length : Math.max(length, Math.min(2 * buffer.length, maxPooledLength));
+			slot.buffer = allocate(capacity);
+		}
+		slot.borrowed = true;
+		return slot.buffer;
+	}
+
+	/**
+	 * clears the first used entries of a buffer from acquire() so the pool
+	 * doesn't keep the caller's objects reachable, and takes it back
+	 * @param buffer = the buffer from acquire()
+	 * @param used = how many entries the caller may have written
+	 */
+	public void release(Comparable[] buffer, int used) {
+		Slot slot = slots.get();
+		if (buffer != slot.buffer) return; // a one-off array, garbage once the caller drops it
+		Arrays.fill(buffer, 0, Math.min(used, buffer.length), null);
+		slot.borrowed = false;
+	}
+
+	/**
+	 * drops this thread's pooled buffer, e.g. after a one-off burst of big sorts
+	 */
+	public void trim() {
+		slots.remove();
+	}
+
+	/**
+	 * @return how many arrays the pool has had to allocate so far, over all threads
+	 */
+	public long allocations() {
+		return allocations.get();
+	}
+
+	/**
+	 * @return roughly how many bytes those arrays took, headers included
+	 */
+	public long bytesAllocated() {
+		return bytes.get();
+	}
+
+	private Comparable[] allocate(int length) {
+		allocations.incrementAndGet();
+		bytes.addAndGet(ARRAY_HEADER_BYTES + (long) REFERENCE_BYTES * length);
+		return new Comparable[length];
+	}
+
+	// HotSpot compresses references below 32 GB of heap unless told not to; assume the worst elsewhere
+	private static int referenceBytes() {
+		try {
+			HotSpotDiagnosticMXBean bean = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+			if (bean != null && "true".equals(bean.getVMOption("UseCompressedOops").getValue())) return 4;
+		}
+		catch (RuntimeException e) {
+			// not HotSpot
+		}
+		return 8;
+	}
+}
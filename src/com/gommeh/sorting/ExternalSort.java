@@ -0,0 +1,242 @@
+package com.gommeh.sorting;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Sorts the lines of a text file that is too big to fit in memory.
+ * <p>
+ * The input is read in chunks (their size estimated from the length of each
+ * line), each chunk is sorted in memory with the given SortingAlgorithm and
+ * spilled to a temporary run file, and then the runs are merged fanIn at a
+ * time through a MinPQ until one remains. Files are read and written through
+ * buffered FileChannels. While chunks are read, the input and run buffers
+ * take 1/IO_FRACTION of the memory budget and the chunk gets what's left;
+ * while runs are merged, nothing else is held, so each open file gets an
+ * equal share of the whole budget. Runs are numbered in input order and
+ * ties between runs go to the earlier one, so with a stable in-memory sort
+ * (the default, MergeSort) the whole sort is stable.
+ */
+public class ExternalSort {
+
+	public static final long DEFAULT_MEMORY_BUDGET = 64L << 20;
+	public static final int DEFAULT_FAN_IN = 64;
+
+	// rough heap cost of a String besides its chars, plus its slot in the chunk array
+	private static final int STRING_OVERHEAD = 56;
+
+	private static final int MIN_BUFFER = 8 << 10;
+
+	// how much of the budget the two I/O buffers of phase one may take, as 1/IO_FRACTION
+	private static final int IO_FRACTION = 8;
+
+	private final long memoryBudget;
+	private final int fanIn;
+	private final Path tempDir;
+	private final SortingAlgorithm sorter;
+
+	/**
+	 * uses a 64 MB budget, merges 64 runs at a time, and spills to the
+	 * system temp directory
+	 */
+	public ExternalSort() {
+		this(DEFAULT_MEMORY_BUDGET, DEFAULT_FAN_IN, Paths.get(System.getProperty("java.io.tmpdir")), new MergeSort());
+	}
+
+	/**
+	 * @param memoryBudget = roughly how many bytes of lines and buffers to hold in memory at once
+	 * @param fanIn = how many runs to merge at a time
+	 * @param tempDir = where to write the sorted runs
+	 * @param sorter = the in-memory sort for each chunk
+	 * @throws IllegalArgumentException if sorter can't sort Strings by a Comparator
+	 */
+	public ExternalSort(long memoryBudget, int fanIn, Path tempDir, SortingAlgorithm sorter) {
+		if (memoryBudget < 1) throw new IllegalArgumentException("memoryBudget must be positive: " + memoryBudget);
+		if (fanIn < 2) throw new IllegalArgumentException("fanIn must be at least 2: " + fanIn);
+		if (tempDir == null || sorter == null) throw new IllegalArgumentException("argument must not be null");
+		this.memoryBudget = memoryBudget;
+		this.fanIn = fanIn;
+		this.tempDir = tempDir;
+		this.sorter = sorter;
+		checkSorter(Comparator.naturalOrder());
+	}
+
+	/**
+	 * sorts the lines of input into output in natural String order
+	 */
+	public void sort(Path input, Path output) throws IOException {
+		sort(input, output, Comparator.naturalOrder());
+	}
+
+	/**
+	 * sorts the lines of input into output by the given ordering
+	 * @param input = the file to sort, UTF-8
+	 * @param output = where to write the sorted lines, one per line; replaced if it exists
+	 * @param c = the ordering
+	 * @throws IllegalArgumentException if the sorter can't sort by c
+	 */
+	public void sort(Path input, Path output, Comparator<? super String> c) throws IOException {
+		checkSorter(c);
+		List<Path> temps = new ArrayList<>(); // every run file ever created, for cleanup
+		try {
+			List<Path> runs = spillRuns(input, c, temps);
+			while (runs.size() > fanIn) {
+				List<Path> merged = new ArrayList<>();
+				for (int i = 0; i < runs.size(); i += fanIn) {
+					List<Path> group = runs.subList(i, Math.min(i + fanIn, runs.size()));
+					if (group.size() == 1) {
+						merged.add(group.get(0));
+						continue;
+					}
+					Path run = createRun(temps);
+					merged.add(run);
+					merge(group, run, c);
+					for (Path p : group) Files.delete(p);
+				}
+				runs = merged;
+			}
+			merge(runs, output, c);
+		}
+		finally {
+			for (Path p : temps) Files.deleteIfExists(p);
+		}
+	}
+
+	/**
+	 * sorts an empty chunk by c before any file is touched, so a sorter that
+	 * can't take a Comparator (a radix sort, a shuffle) is refused up front
+	 * instead of writing unsorted runs
+	 */
+	private void checkSorter(Comparator<? super String> c) {
+		try {
+			sorter.sort(new String[0], c);
+		}
+		catch (UnsupportedOperationException e) {
+			throw new IllegalArgumentException(sorter.getClass().getSimpleName() + " can't sort lines by this ordering", e);
+		}
+	}
+
+	private Path createRun(List<Path> temps) throws IOException {
+		Path run = Files.createTempFile(tempDir, "run", ".txt");
+		temps.add(run);
+		return run;
+	}
+
+	// phase one: sorted chunks of the input, each written to its own run file
+	private List<Path> spillRuns(Path input, Comparator<? super String> c, List<Path> temps) throws IOException {
+		List<Path> runs = new ArrayList<>();
+		int buffer = bufferSize(memoryBudget / IO_FRACTION, 2);
+		long chunkBudget = memoryBudget - 2 * 2L * buffer; // two bytes per buffered char
+		try (BufferedReader in = reader(input, buffer)) {
+			List<String> chunk = new ArrayList<>();
+			String line = in.readLine();
+			while (line != null) {
+				long bytes = 0;
+				chunk.clear();
+				while (line != null && (chunk.isEmpty() || bytes + cost(line) <= chunkBudget)) {
+					chunk.add(line);
+					bytes += cost(line);
+					line = in.readLine();
+				}
+				String[] a = chunk.toArray(new String[0]);
+				sorter.sort(a, c);
+
+				Path run = createRun(temps);
+				runs.add(run);
+				try (BufferedWriter out = writer(run, buffer)) {
+					for (String s : a) {
+						out.write(s);
+						out.write('\n');
+					}
+				}
+			}
+		}
+		return runs;
+	}
+
+	/**
+	 * k-way merge of sorted run files into output, through a MinPQ holding
+	 * the current line of every run that isn't used up yet
+	 */
+	private void merge(List<Path> runs, Path output, Comparator<? super String> c) throws IOException {
+		int buffer = bufferSize(memoryBudget, runs.size() + 1);
+		BufferedReader[] in = new BufferedReader[runs.size()];
+		MinPQ<Head> pq = new MinPQ<Head>(runs.size(), (x, y) -> {
+			int cmp = c.compare(x.line, y.line);
+			return cmp != 0 ? cmp : Integer.compare(x.run, y.run);
+		});
+		try (BufferedWriter out = writer(output, buffer)) {
+			for (int i = 0; i < in.length; i++) {
+				in[i] = reader(runs.get(i), buffer);
+				String line = in[i].readLine();
+				if (line != null) pq.insert(new Head(line, i));
+			}
+			while (!pq.isEmpty()) {
+				Head head = pq.delMin();
+				out.write(head.line);
+				out.write('\n');
+				String next = in[head.run].readLine();
+				if (next != null) pq.insert(new Head(next, head.run));
+			}
+		}
+		finally {
+			for (BufferedReader r : in)
+				if (r != null) r.close();
+		}
+	}
+
+	// the next unmerged line of one run
+	private static class Head {
+		final String line;
+		final int run;
+
+		Head(String line, int run) {
+			this.line = line;
+			this.run = run;
+		}
+	}
+
+	private static long cost(String line) {
+		return STRING_OVERHEAD + 2L * line.length();
+	}
+
+	// the chars per buffer that split bytes evenly between the given number of open files
+	private static int bufferSize(long bytes, int files) {
+		return (int) Math.max(MIN_BUFFER, Math.min(Integer.MAX_VALUE - 8, bytes / files / 2));
+	}
+
+	private static BufferedReader reader(Path path, int bufferSize) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		return new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8), bufferSize);
+	}
+
+	private static BufferedWriter writer(Path path, int bufferSize) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		return new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8), bufferSize);
+	}
+
+	/**
+	 * usage: java com.gommeh.sorting.ExternalSort input output [budgetMB] [fanIn]
+	 */
+	public static void main(String[] args) throws IOException {
+		long budget = args.length > 2 ? Long.parseLong(args[2]) << 20 : DEFAULT_MEMORY_BUDGET;
+		int fanIn = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_FAN_IN;
+		ExternalSort sorter = new ExternalSort(budget, fanIn, Paths.get(System.getProperty("java.io.tmpdir")), new MergeSort());
+		long start = System.nanoTime();
+		sorter.sort(Paths.get(args[0]), Paths.get(args[1]));
+		System.out.printf("sorted %s into %s in %.1f ms%n", args[0], args[1], (System.nanoTime() - start) / 1e6);
+	}
+}
@@ -1,14 +1,152 @@
 package com.gommeh.sorting;
 
+import java.util.Comparator;
+
 public class InsertionSort extends SortingAlgorithm {
 	public void sort(Comparable[] a) {
-		System.out.println("Insertion sorting...");
 		int N = a.length;
 		for (int i = 0; i < N; i++)
 			for (int j = i; j > 0; j--)
 				if (less(a[j], a[j-1]))
 					exch(a, j, j-1);
 				else break;
-		System.out.println("Done insertion sorting.");
+	}
+
+	/**
+	 * insertion sorts just a[lo..hi], for finishing off small subarrays
+	 * inside the other algorithms
+	 * @param a = the array
+	 * @param lo and @param hi = the first and last index of the range
+	 */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	public static void sort(Comparable[] a, int lo, int hi) {
+		for (int i = lo + 1; i <= hi; i++)
+			for (int j = i; j > lo; j--)
+				if (less(a[j], a[j-1]))
+					exch(a, j, j-1);
+				else break;
+	}
+
+	/**
+	 * binary insertion sort of a[lo..hi]: binary searches a[lo..i-1] for the
+	 * slot of a[i] (after any equal keys, so it stays stable) and then shifts
+	 * the tail right with one arraycopy, so it does about N lg N compares and
+	 * writes each moved item once instead of exchanging it
+	 * @param a = the array
+	 * @param lo and @param hi = the first and last index of the range
+	 */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	public static void binarySort(Comparable[] a, int lo, int hi) {
+		for (int i = lo + 1; i <= hi; i++) {
+			Comparable v = a[i];
+			int left = lo, right = i;
+			while (left < right) {
+				int mid = (left + right) >>> 1;
+				if (less(v, a[mid])) right = mid;
+				else left = mid + 1;
+			}
+			System.arraycopy(a, left, a, left + 1, i - left);
+			a[left] = v;
+			if (METRICS) countWrites(i - left + 1);
+		}
+	}
+
+	/**
+	 * insertion sort of a[lo..hi] with a sentinel: the first smallest item is
+	 * moved to a[lo] up front, after which the inner loop can never run off
+	 * the front and needs no bounds check. Also shifts instead of exchanging,
+	 * so it's one write per step. Stable.
+	 * @param a = the array
+	 * @param lo and @param hi = the first and last index of the range
+	 */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	public static void sentinelSort(Comparable[] a, int lo, int hi) {
+		if (hi <= lo) return;
+		int min = lo;
+		for (int i = lo + 1; i <= hi; i++)
+			if (less(a[i], a[min])) min = i;
+		Comparable v = a[min];
+		for (int i = min; i > lo; i--)
+			a[i] = a[i-1];
+		a[lo] = v;
+		if (METRICS) countWrites(min - lo + 1);
+		unguardedSort(a, lo + 1, hi);
+	}
+
+	/**
+	 * sentinelSort() without the first pass, for when the caller already
+	 * knows that a[lo-1] is no greater than anything in a[lo..hi], e.g. it's
+	 * the pivot of an earlier quicksort partition
+	 */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	static void unguardedSort(Comparable[] a, int lo, int hi) {
+		for (int i = lo + 1; i <= hi; i++) {
+			Comparable v = a[i];
+			int j = i;
+			while (less(v, a[j-1])) {
+				a[j] = a[j-1];
+				j--;
+			}
+			a[j] = v;
+			if (METRICS) countWrites(i - j + 1);
+		}
+	}
+
+	public <T> void sort(T[] a, int from, int to, Comparator<? super T> c) {
+		checkRange(a.length, from, to);
+		sortRange(a, from, to-1, c);
+	}
+
+	/**
+	 * insertion sorts just a[lo..hi] by the given ordering
+	 * @param a = the array
+	 * @param lo and @param hi = the first and last index of the range
+	 * @param c = the ordering
+	 */
+	static <T> void sortRange(T[] a, int lo, int hi, Comparator<? super T> c) {
+		for (int i = lo + 1; i <= hi; i++)
+			for (int j = i; j > lo; j--)
+				if (less(c, a[j], a[j-1]))
+					exch(a, j, j-1);
+				else break;
+	}
+
+	public void sort(int[] a) {
+		sort(a, 0, a.length-1);
+	}
+
+	/**
+	 * primitive versions of sort(a, lo, hi), same inclusive bounds
+	 */
+	public static void sort(int[] a, int lo, int hi) {
+		for (int i = lo + 1; i <= hi; i++)
+			for (int j = i; j > lo; j--)
+				if (less(a[j], a[j-1]))
+					exch(a, j, j-1);
+				else break;
+	}
+
+	public void sort(long[] a) {
+		sort(a, 0, a.length-1);
+	}
+
+	public static void sort(long[] a, int lo, int hi) {
+		for (int i = lo + 1; i <= hi; i++)
+			for (int j = i; j > lo; j--)
+				if (less(a[j], a[j-1]))
+					exch(a, j, j-1);
+				else break;
+	}
+
+	public void sort(double[] a) {
+		sort(a, 0, a.length-1);
+	}
+
+	public static void sort(double[] a, int lo, int hi) {
+		for (int i = lo + 1; i <= hi; i++)
+			for (int j = i; j > lo; j--)
+				if (less(a[j], a[j-1]))
+					exch(a, j, j-1);
+				else break;
 	}
 }
@@ -0,0 +1,62 @@
+package com.gommeh.sorting;
+
+import java.util.Comparator;
+
+/**
+ * Wraps another SortingAlgorithm and reports the wall time of every sort()
+ * call to the registered SortMetrics. The wrapped algorithm is otherwise untouched.
+ * A call is only reported once the wrapped sort has returned, so one that
+ * throws, e.g. because the wrapped algorithm has no primitive version,
+ * isn't counted as a sort.
+ */
+public class InstrumentedSort extends SortingAlgorithm {
+
+	private final SortingAlgorithm delegate;
+	private final String name;
+
+	public InstrumentedSort(SortingAlgorithm delegate) {
+		if (delegate == null) throw new IllegalArgumentException("delegate must not be null");
+		this.delegate = delegate;
+		this.name = delegate.getClass().getSimpleName();
+	}
+
+	@SuppressWarnings("rawtypes")
+	public void sort(Comparable[] a) {
+		long start = System.nanoTime();
+		delegate.sort(a);
+		report(a.length, start);
+	}
+
+	/**
+	 * @throws UnsupportedOperationException if the wrapped algorithm can't sort primitive arrays
+	 */
+	public void sort(int[] a) {
+		long start = System.nanoTime();
+		delegate.sort(a);
+		report(a.length, start);
+	}
+
+	public void sort(long[] a) {
+		long start = System.nanoTime();
+		delegate.sort(a);
+		report(a.length, start);
+	}
+
+	public void sort(double[] a) {
+		long start = System.nanoTime();
+		delegate.sort(a);
+		report(a.length, start);
+	}
+
+	public <T> void sort(T[] a, int from, int to, Comparator<? super T> c) {
+		long start = System.nanoTime();
+		delegate.sort(a, from, to, c);
+		report(to - from, start);
+	}
+
+	private void report(int n, long start) {
+		long nanos = System.nanoTime() - start;
+		SortMetrics m = getMetrics();
+		if (m != null) m.onSort(name, n, nanos);
+	}
+}
@@ -0,0 +1,212 @@
+package com.gommeh.sorting;
+
+import java.util.Comparator;
+
+/**
+ * Quicksort with a recursion depth budget of 2 lg N. A subarray that runs
+ * out of budget is heapsorted instead, so the worst case is N log N, and
+ * subarrays of at most INSERTION_SORT_CUTOFF items are finished by
+ * insertion sort. Uses median-of-3 pivots rather than an up-front shuffle.
+ * <p>
+ * The int[], long[] and double[] versions have the same depth budget and
+ * heapsort fallback, and finish small subarrays the way Quicksort's
+ * primitive sorts do.
+ */
+public class Introsort extends SortingAlgorithm {
+
+	// subarrays this small are left to insertion sort
+	private static final int INSERTION_SORT_CUTOFF = 16;
+
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	public void sort(Comparable[] a) {
+		sort(a, 0, a.length, Comparator.naturalOrder());
+	}
+
+	public <T> void sort(T[] a, int from, int to, Comparator<? super T> c) {
+		checkRange(a.length, from, to);
+		sort(a, from, to-1, 2 * floorLg(to - from), c);
+	}
+
+	private static <T> void sort(T[] a, int lo, int hi, int depth, Comparator<? super T> c) {
+		if (hi - lo < INSERTION_SORT_CUTOFF) {
+			InsertionSort.sortRange(a, lo, hi, c);
+			return;
+		}
+		if (depth == 0) {
+			MinPQ.heapsort(a, lo, hi, c);
+			return;
+		}
+		if (METRICS) enter();
+		medianOf3(a, lo, lo + (hi - lo) / 2, hi, c);
+		int j = Quicksort.partition(a, lo, hi, c);
+		sort(a, lo, j-1, depth-1, c);
+		sort(a, j+1, hi, depth-1, c);
+		if (METRICS) exit();
+	}
+
+	// moves the median of a[i], a[j] and a[k] to a[i], where partition() takes its pivot from
+	static <T> void medianOf3(T[] a, int i, int j, int k, Comparator<? super T> c) {
+		if (less(c, a[j], a[i])) exch(a, i, j);
+		if (less(c, a[k], a[j])) {
+			exch(a, j, k);
+			if (less(c, a[j], a[i])) exch(a, i, j);
+		}
+		exch(a, i, j);
+	}
+
+	static int floorLg(int n) {
+		return n == 0 ? 0 : 31 - Integer.numberOfLeadingZeros(n);
+	}
+
+	public void sort(int[] a) {
+		sort(a, 0, a.length-1, 2 * floorLg(a.length));
+	}
+
+	private static void sort(int[] a, int lo, int hi, int depth) {
+		if (hi - lo < SortingNetwork.BASE_CASE_SIZE) {
+			SortingNetwork.sort(a, lo, hi);
+			return;
+		}
+		if (depth == 0) {
+			heapsort(a, lo, hi);
+			return;
+		}
+		if (METRICS) enter();
+		medianOf3(a, lo, lo + (hi - lo) / 2, hi);
+		int j = Quicksort.partition(a, lo, hi);
+		sort(a, lo, j-1, depth-1);
+		sort(a, j+1, hi, depth-1);
+		if (METRICS) exit();
+	}
+
+	private static void medianOf3(int[] a, int i, int j, int k) {
+		if (less(a[j], a[i])) exch(a, i, j);
+		if (less(a[k], a[j])) {
+			exch(a, j, k);
+			if (less(a[j], a[i])) exch(a, i, j);
+		}
+		exch(a, i, j);
+	}
+
+	// binary max-heap on a[lo..hi], the root at a[lo]; the largest key is swapped to the end each round
+	private static void heapsort(int[] a, int lo, int hi) {
+		int n = hi - lo + 1;
+		for (int k = n/2 - 1; k >= 0; k--)
+			sink(a, lo, k, n);
+		while (n > 1) {
+			exch(a, lo, lo + --n);
+			sink(a, lo, 0, n);
+		}
+	}
+
+	private static void sink(int[] a, int lo, int k, int n) {
+		while (2*k + 1 < n) {
+			int j = 2*k + 1;
+			if (j + 1 < n && less(a[lo + j], a[lo + j + 1])) j++;
+			if (!less(a[lo + k], a[lo + j])) break;
+			exch(a, lo + k, lo + j);
+			k = j;
+		}
+	}
+
+	public void sort(long[] a) {
+		sort(a, 0, a.length-1, 2 * floorLg(a.length));
+	}
+
+	private static void sort(long[] a, int lo, int hi, int depth) {
+		if (hi - lo < SortingNetwork.BASE_CASE_SIZE) {
+			SortingNetwork.sort(a, lo, hi);
+			return;
+		}
+		if (depth == 0) {
+			heapsort(a, lo, hi);
+			return;
+		}
+		if (METRICS) enter();
+		medianOf3(a, lo, lo + (hi - lo) / 2, hi);
+		int j = Quicksort.partition(a, lo, hi);
+		sort(a, lo, j-1, depth-1);
+		sort(a, j+1, hi, depth-1);
+		if (METRICS) exit();
+	}
+
+	private static void medianOf3(long[] a, int i, int j, int k) {
+		if (less(a[j], a[i])) exch(a, i, j);
+		if (less(a[k], a[j])) {
+			exch(a, j, k);
+			if (less(a[j], a[i])) exch(a, i, j);
+		}
+		exch(a, i, j);
+	}
+
+	private static void heapsort(long[] a, int lo, int hi) {
+		int n = hi - lo + 1;
+		for (int k = n/2 - 1; k >= 0; k--)
+			sink(a, lo, k, n);
+		while (n > 1) {
+			exch(a, lo, lo + --n);
+			sink(a, lo, 0, n);
+		}
+	}
+
+	private static void sink(long[] a, int lo, int k, int n) {
+		while (2*k + 1 < n) {
+			int j = 2*k + 1;
+			if (j + 1 < n && less(a[lo + j], a[lo + j + 1])) j++;
+			if (!less(a[lo + k], a[lo + j])) break;
+			exch(a, lo + k, lo + j);
+			k = j;
+		}
+	}
+
+	public void sort(double[] a) {
+		sort(a, 0, a.length-1, 2 * floorLg(a.length));
+	}
+
+	private static void sort(double[] a, int lo, int hi, int depth) {
+		if (hi - lo < SortingNetwork.BASE_CASE_SIZE) {
+			// not SortingNetwork: its double network branches on NaN and -0.0 and is no faster
+			InsertionSort.sort(a, lo, hi);
+			return;
+		}
+		if (depth == 0) {
+			heapsort(a, lo, hi);
+			return;
+		}
+		if (METRICS) enter();
+		medianOf3(a, lo, lo + (hi - lo) / 2, hi);
+		int j = Quicksort.partition(a, lo, hi);
+		sort(a, lo, j-1, depth-1);
+		sort(a, j+1, hi, depth-1);
+		if (METRICS) exit();
+	}
+
+	private static void medianOf3(double[] a, int i, int j, int k) {
+		if (less(a[j], a[i])) exch(a, i, j);
+		if (less(a[k], a[j])) {
+			exch(a, j, k);
+			if (less(a[j], a[i])) exch(a, i, j);
+		}
+		exch(a, i, j);
+	}
+
+	private static void heapsort(double[] a, int lo, int hi) {
+		int n = hi - lo + 1;
+		for (int k = n/2 - 1; k >= 0; k--)
+			sink(a, lo, k, n);
+		while (n > 1) {
+			exch(a, lo, lo + --n);
+			sink(a, lo, 0, n);
+		}
+	}
+
+	private static void sink(double[] a, int lo, int k, int n) {
+		while (2*k + 1 < n) {
+			int j = 2*k + 1;
+			if (j + 1 < n && less(a[lo + j], a[lo + j + 1])) j++;
+			if (!less(a[lo + k], a[lo + j])) break;
+			exch(a, lo + k, lo + j);
+			k = j;
+		}
+	}
+}
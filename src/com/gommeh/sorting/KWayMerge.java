@@ -0,0 +1,77 @@
+package com.gommeh.sorting;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * Lazily merges k iterators that are each already sorted into one sorted
+ * iterator. Keeps the current head of every source on a MinPQ, so it holds
+ * O(k) items and each next() costs O(log k) compares. Ties go to the source
+ * that comes first in the list, so the merge is stable.
+ * <p>
+ * For large k, LoserTree does the same job with fewer compares per item.
+ *
+ * @param <T> the type of item being merged
+ */
+public class KWayMerge<T> implements Iterator<T> {
+
+	private final List<Iterator<? extends T>> sources;
+	private final MinPQ<Head<T>> pq;
+
+	/**
+	 * @param sources = the sorted inputs
+	 * @param c = the order the inputs are sorted in
+	 */
+	public KWayMerge(List<? extends Iterator<? extends T>> sources, Comparator<? super T> c) {
+		if (sources == null || c == null) throw new IllegalArgumentException("argument must not be null");
+		this.sources = new ArrayList<>(sources);
+		this.pq = new MinPQ<Head<T>>(Math.max(1, sources.size()), (x, y) -> {
+			int cmp = c.compare(x.item, y.item);
+			return cmp != 0 ? cmp : Integer.compare(x.source, y.source);
+		});
+		for (int i = 0; i < this.sources.size(); i++)
+			advance(i);
+	}
+
+	/**
+	 * merges sorted Spliterators, e.g. from sorted streams
+	 */
+	public static <T> KWayMerge<T> ofSpliterators(List<? extends Spliterator<? extends T>> sources, Comparator<? super T> c) {
+		List<Iterator<? extends T>> iterators = new ArrayList<>(sources.size());
+		for (Spliterator<? extends T> s : sources)
+			iterators.add(Spliterators.iterator(s));
+		return new KWayMerge<T>(iterators, c);
+	}
+
+	public boolean hasNext() {
+		return !pq.isEmpty();
+	}
+
+	public T next() {
+		if (!hasNext()) throw new NoSuchElementException();
+		Head<T> head = pq.delMin();
+		advance(head.source);
+		return head.item;
+	}
+
+	// puts the next item of source i on the pq, if it has one
+	private void advance(int i) {
+		Iterator<? extends T> source = sources.get(i);
+		if (source.hasNext()) pq.insert(new Head<T>(source.next(), i));
+	}
+
+	private static class Head<T> {
+		final T item;
+		final int source;
+
+		Head(T item, int source) {
+			this.item = item;
+			this.source = source;
+		}
+	}
+}
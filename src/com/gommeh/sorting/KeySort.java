@@ -0,0 +1,73 @@
+package com.gommeh.sorting;
+
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Sorts objects by a primitive key without comparing the objects:
+ * decorate-sort-undecorate. The key of every item is extracted once into a
+ * long[], the keys are sorted together with an int[] of their original
+ * positions, and the objects are then moved into place by following that
+ * permutation with Argsort.apply(). Sorting Edge[] by weight this way reads
+ * each Edge once instead of calling weight() and Double.compare() twice per
+ * comparison, and the sort itself only touches two flat primitive arrays.
+ * <p>
+ * The keys are LSD radix sorted once there are at least
+ * AutoSort.RADIX_MIN of them, and merge sorted by Argsort below that.
+ * Both are stable, so items with equal keys keep their order.
+ */
+public class KeySort {
+
+	// don't instantiate
+	private KeySort() { }
+
+	/**
+	 * sorts a by key, with doubles ordered like Double.compare() (-0.0 before 0.0, NaN last)
+	 * @param a = the array
+	 * @param key = the key of each item, which is called once per item
+	 */
+	public static <T> void sortByDoubleKey(T[] a, ToDoubleFunction<? super T> key) {
+		Argsort.apply(argsortByDoubleKey(a, key), a);
+	}
+
+	/**
+	 * @param a = the array
+	 * @param key = the key of each item, which is called once per item
+	 */
+	public static <T> void sortByLongKey(T[] a, ToLongFunction<? super T> key) {
+		Argsort.apply(argsortByLongKey(a, key), a);
+	}
+
+	/**
+	 * like sortByDoubleKey() but leaves a alone, for co-sorting other arrays with Argsort.apply()
+	 * @return p such that key(a[p[0]]) <= key(a[p[1]]) <= ...
+	 */
+	public static <T> int[] argsortByDoubleKey(T[] a, ToDoubleFunction<? super T> key) {
+		long[] keys = new long[a.length];
+		for (int i = 0; i < a.length; i++) keys[i] = LSDRadixSort.toSortableBits(key.applyAsDouble(a[i]));
+		return argsortUnsigned(keys);
+	}
+
+	/**
+	 * like sortByLongKey() but leaves a alone, for co-sorting other arrays with Argsort.apply()
+	 * @return p such that key(a[p[0]]) <= key(a[p[1]]) <= ...
+	 */
+	public static <T> int[] argsortByLongKey(T[] a, ToLongFunction<? super T> key) {
+		long[] keys = new long[a.length];
+		for (int i = 0; i < a.length; i++) keys[i] = key.applyAsLong(a[i]) ^ Long.MIN_VALUE; // signed to unsigned order
+		return argsortUnsigned(keys);
+	}
+
+	// the stable sorted order of keys, compared as unsigned; keys is overwritten
+	private static int[] argsortUnsigned(long[] keys) {
+		int n = keys.length;
+		if (n < AutoSort.RADIX_MIN) {
+			for (int i = 0; i < n; i++) keys[i] ^= Long.MIN_VALUE; // back to signed order
+			return Argsort.argsort(keys);
+		}
+		int[] index = new int[n];
+		for (int i = 0; i < n; i++) index[i] = i;
+		LSDRadixSort.sortUnsigned(keys, index);
+		return index;
+	}
+}
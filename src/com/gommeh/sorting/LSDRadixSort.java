@@ -0,0 +1,152 @@
+package com.gommeh.sorting;
+
+/**
+ * Least-significant-digit radix sort for primitive keys, one byte at a time.
+ * Takes a fixed number of linear passes (4 for int, 8 for long and double)
+ * plus an aux array, instead of N log N compares. A pass is skipped when
+ * every key has the same byte in that position.
+ * <p>
+ * Signed keys are sorted by flipping the sign bit first so that two's
+ * complement order matches unsigned byte order. Doubles are mapped to longs
+ * the same way Double.compare orders them: negative values have all their
+ * bits flipped, so -0.0 sorts before 0.0 and NaN after everything else.
+ * NaNs come back as the canonical Double.NaN.
+ */
+public class LSDRadixSort extends SortingAlgorithm {
+
+	private static final int BITS_PER_BYTE = 8;
+	private static final int R = 1 << BITS_PER_BYTE;
+	private static final int MASK = R - 1;
+
+	/**
+	 * radix sort only works on primitive keys; use sort(int[]), sort(long[]) or sort(double[])
+	 */
+	@SuppressWarnings("rawtypes")
+	public void sort(Comparable[] a) {
+		throw new UnsupportedOperationException("LSD radix sort needs primitive keys");
+	}
+
+	public void sort(int[] a) {
+		int n = a.length;
+		int[] aux = new int[n];
+		int[] src = a, dst = aux;
+
+		for (int d = 0; d < 4; d++) {
+			int shift = BITS_PER_BYTE * d;
+			int[] count = new int[R+1];
+			for (int i = 0; i < n; i++) {
+				int c = ((src[i] ^ Integer.MIN_VALUE) >>> shift) & MASK;
+				count[c + 1]++;
+			}
+			if (skip(count, n)) continue;
+			for (int r = 0; r < R; r++)
+				count[r+1] += count[r];
+			for (int i = 0; i < n; i++) {
+				int c = ((src[i] ^ Integer.MIN_VALUE) >>> shift) & MASK;
+				dst[count[c]++] = src[i];
+			}
+			if (METRICS) countWrites(n);
+			int[] t = src; src = dst; dst = t;
+		}
+		if (src != a) System.arraycopy(src, 0, a, 0, n);
+	}
+
+	public void sort(long[] a) {
+		for (int i = 0; i < a.length; i++) a[i] ^= Long.MIN_VALUE;
+		sortUnsigned(a);
+		for (int i = 0; i < a.length; i++) a[i] ^= Long.MIN_VALUE;
+	}
+
+	public void sort(double[] a) {
+		int n = a.length;
+		long[] keys = new long[n];
+		for (int i = 0; i < n; i++) keys[i] = toSortableBits(a[i]);
+		sortUnsigned(keys);
+		for (int i = 0; i < n; i++) a[i] = fromSortableBits(keys[i]);
+	}
+
+	/**
+	 * maps a double to a long whose unsigned order is Double.compare's order
+	 */
+	static long toSortableBits(double x) {
+		long bits = Double.doubleToLongBits(x);
+		return bits < 0 ? ~bits : bits ^ Long.MIN_VALUE;
+	}
+
+	static double fromSortableBits(long key) {
+		return Double.longBitsToDouble(key < 0 ? key ^ Long.MIN_VALUE : ~key);
+	}
+
+	// sorts a by the unsigned value of each key
+	static void sortUnsigned(long[] a) {
+		int n = a.length;
+		long[] aux = new long[n];
+		long[] src = a, dst = aux;
+
+		for (int d = 0; d < 8; d++) {
+			int shift = BITS_PER_BYTE * d;
+			int[] count = new int[R+1];
+			for (int i = 0; i < n; i++) {
+				int c = (int) (src[i] >>> shift) & MASK;
+				count[c + 1]++;
+			}
+			if (skip(count, n)) continue;
+			for (int r = 0; r < R; r++)
+				count[r+1] += count[r];
+			for (int i = 0; i < n; i++) {
+				int c = (int) (src[i] >>> shift) & MASK;
+				dst[count[c]++] = src[i];
+			}
+			if (METRICS) countWrites(n);
+			long[] t = src; src = dst; dst = t;
+		}
+		if (src != a) System.arraycopy(src, 0, a, 0, n);
+	}
+
+	/**
+	 * sorts a by the unsigned value of each key and moves index[i] along
+	 * with a[i], so afterwards index says where each key came from. Stable.
+	 * @param a = the keys
+	 * @param index = the payload, as long as a
+	 */
+	static void sortUnsigned(long[] a, int[] index) {
+		int n = a.length;
+		long[] aux = new long[n];
+		int[] auxIndex = new int[n];
+		long[] src = a, dst = aux;
+		int[] srcIndex = index, dstIndex = auxIndex;
+
+		for (int d = 0; d < 8; d++) {
+			int shift = BITS_PER_BYTE * d;
+			int[] count = new int[R+1];
+			for (int i = 0; i < n; i++) {
+				int c = (int) (src[i] >>> shift) & MASK;
+				count[c + 1]++;
+			}
+			if (skip(count, n)) continue;
+			for (int r = 0; r < R; r++)
+				count[r+1] += count[r];
+			for (int i = 0; i < n; i++) {
+				int c = (int) (src[i] >>> shift) & MASK;
+				int k = count[c]++;
+				dst[k] = src[i];
+				dstIndex[k] = srcIndex[i];
+			}
+			if (METRICS) countWrites(2 * n);
+			long[] t = src; src = dst; dst = t;
+			int[] u = srcIndex; srcIndex = dstIndex; dstIndex = u;
+		}
+		if (src != a) {
+			System.arraycopy(src, 0, a, 0, n);
+			System.arraycopy(srcIndex, 0, index, 0, n);
+		}
+	}
+
+	// true if every key fell into the same bucket, so the pass wouldn't move anything
+	static boolean skip(int[] count, int n) {
+		for (int r = 1; r <= R; r++)
+			if (count[r] == n) return true;
+			else if (count[r] != 0) return false;
+		return true;
+	}
+}
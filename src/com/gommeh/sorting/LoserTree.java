@@ -0,0 +1,99 @@
+package com.gommeh.sorting;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Tournament (loser tree) version of KWayMerge. Every internal node of a
+ * complete binary tree over the k sources remembers the loser of the match
+ * played there, and node 0 the overall winner. After the winner's source
+ * advances, only the matches on its path to the root are replayed, one
+ * compare per level, so next() takes exactly ceil(lg k) compares where a
+ * binary heap's sink() needs up to two per level. Ties go to the source that
+ * comes first in the list, so the merge is stable.
+ *
+ * @param <T> the type of item being merged
+ */
+public class LoserTree<T> implements Iterator<T> {
+
+	private final List<Iterator<? extends T>> sources;
+	private final Comparator<? super T> c;
+	private final int k;
+	private final Object[] heads;       // current item of each source
+	private final boolean[] exhausted;  // sources with no items left lose every match
+	private final int[] tree;           // tree[1..k-1] = loser at that node, tree[0] = winner
+
+	/**
+	 * @param sources = the sorted inputs
+	 * @param c = the order the inputs are sorted in
+	 */
+	public LoserTree(List<? extends Iterator<? extends T>> sources, Comparator<? super T> c) {
+		if (sources == null || c == null) throw new IllegalArgumentException("argument must not be null");
+		this.sources = new ArrayList<>(sources);
+		this.c = c;
+		this.k = sources.size();
+		this.heads = new Object[k];
+		this.exhausted = new boolean[k];
+		this.tree = new int[Math.max(1, k)];
+		for (int i = 0; i < k; i++)
+			advance(i);
+		if (k > 0) tree[0] = play(1);
+	}
+
+	public boolean hasNext() {
+		return k > 0 && !exhausted[tree[0]];
+	}
+
+	@SuppressWarnings("unchecked")
+	public T next() {
+		if (!hasNext()) throw new NoSuchElementException();
+		int winner = tree[0];
+		T item = (T) heads[winner];
+		advance(winner);
+
+		// replay the matches from the winner's leaf up to the root
+		for (int node = (winner + k) / 2; node > 0; node /= 2) {
+			if (beats(tree[node], winner)) {
+				int t = tree[node];
+				tree[node] = winner;
+				winner = t;
+			}
+		}
+		tree[0] = winner;
+		return item;
+	}
+
+	// plays every match below node (leaves are k..2k-1), recording losers; returns the winner
+	private int play(int node) {
+		if (node >= k) return node - k;
+		int left = play(2*node), right = play(2*node + 1);
+		if (beats(left, right)) {
+			tree[node] = right;
+			return left;
+		}
+		tree[node] = left;
+		return right;
+	}
+
+	// does source i's head come before source j's?
+	@SuppressWarnings("unchecked")
+	private boolean beats(int i, int j) {
+		if (exhausted[i]) return false;
+		if (exhausted[j]) return true;
+		if (SortingAlgorithm.METRICS) SortingAlgorithm.countCompare();
+		int cmp = c.compare((T) heads[i], (T) heads[j]);
+		return cmp < 0 || (cmp == 0 && i < j);
+	}
+
+	private void advance(int i) {
+		Iterator<? extends T> source = sources.get(i);
+		if (source.hasNext()) heads[i] = source.next();
+		else {
+			heads[i] = null;
+			exhausted[i] = true;
+		}
+	}
+}
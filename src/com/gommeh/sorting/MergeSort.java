@@ -1,7 +1,40 @@
 package com.gommeh.sorting;
+
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 public class MergeSort extends SortingAlgorithm {
 
+	// subarrays smaller than this are sorted (and merged) sequentially by parallelSort()
+	public static final int DEFAULT_PARALLEL_CUTOFF = 1 << 13;
+
+	// sortBottomUp() insertion sorts blocks of this size before its first merge pass
+	private static final int BOTTOM_UP_INITIAL_RUN = 16;
+
+	// shared by every sortBottomUp() call that doesn't pass its own pool
+	private static final AuxBufferPool AUX_POOL = new AuxBufferPool();
+
+	// subarrays of at most this many items more than one are binary insertion sorted instead of split
+	public static final int DEFAULT_INSERTION_CUTOFF = 16;
+
+	private final int insertionCutoff;
+
+	public MergeSort() {
+		this(DEFAULT_INSERTION_CUTOFF);
+	}
+
+	/**
+	 * @param insertionCutoff = sort(Comparable[]) hands subarrays a[lo..hi] with
+	 *        hi - lo <= insertionCutoff to InsertionSort.binarySort(); 0 turns it off
+	 */
+	public MergeSort(int insertionCutoff) {
+		if (insertionCutoff < 0) throw new IllegalArgumentException("insertionCutoff must not be negative: " + insertionCutoff);
+		this.insertionCutoff = insertionCutoff;
+	}
+
 	private static void merge(Comparable[] a, Comparable[] aux, int lo, int mid, int hi) {
+		if (METRICS) countWrites(2 * (hi - lo + 1));
 		for (int k = lo; k <= hi; k++) { // copy
 			aux[k] = a[k];
 		}
@@ -14,19 +47,350 @@ public class MergeSort extends SortingAlgorithm {
 		}
 	}
 	
-	private static void sort(Comparable[] a, Comparable[] aux, int low, int high) {
-		if (high == low) return;
+	private static void sort(Comparable[] a, Comparable[] aux, int low, int high, int cutoff) {
+		if (high <= low + cutoff) {
+			InsertionSort.binarySort(a, low, high);
+			return;
+		}
+		if (METRICS) enter();
 		int mid = low + (high - low) / 2;
-		sort(a, aux, low, mid);
-		sort(a, aux, mid+1, high);
-		
-		if (!less(a[mid+1], a[mid])) return;
-		
-		merge(a, aux, low, mid, high);
+		sort(a, aux, low, mid, cutoff);
+		sort(a, aux, mid+1, high, cutoff);
+
+		// skip the merge if the halves are already in order
+		if (less(a[mid+1], a[mid])) merge(a, aux, low, mid, high);
+		if (METRICS) exit();
 	}
 	
 	public void sort(Comparable[] a) {
 		Comparable[] aux = new Comparable[a.length];
+		sort(a, aux, 0, a.length-1, insertionCutoff);
+	}
+
+	// aux[k-off] holds the copy of a[k]
+	@SuppressWarnings("unchecked")
+	static <T> void merge(T[] a, Object[] aux, int off, int lo, int mid, int hi, Comparator<? super T> c) {
+		if (METRICS) countWrites(2 * (hi - lo + 1));
+		for (int k = lo; k <= hi; k++) { // copy
+			aux[k-off] = a[k];
+		}
+		int i = lo, j = mid+1;
+		for (int k = lo; k <= hi; k++) { // merge
+			if (i > mid) a[k] = (T) aux[j++ - off];
+			else if (j > hi) a[k] = (T) aux[i++ - off];
+			else if (less(c, (T) aux[j-off], (T) aux[i-off])) a[k] = (T) aux[j++ - off];
+			else a[k] = (T) aux[i++ - off];
+		}
+	}
+
+	private static <T> void sort(T[] a, Object[] aux, int off, int low, int high, Comparator<? super T> c) {
+		if (high <= low) return;
+		if (METRICS) enter();
+		int mid = low + (high - low) / 2;
+		sort(a, aux, off, low, mid, c);
+		sort(a, aux, off, mid+1, high, c);
+
+		// skip the merge if the halves are already in order
+		if (less(c, a[mid+1], a[mid])) merge(a, aux, off, low, mid, high, c);
+		if (METRICS) exit();
+	}
+
+	public <T> void sort(T[] a, int from, int to, Comparator<? super T> c) {
+		checkRange(a.length, from, to);
+		Object[] aux = new Object[to - from];
+		sort(a, aux, from, from, to-1, c);
+	}
+
+	/**
+	 * iterative bottom-up merge sort that borrows its aux array from a shared
+	 * per-thread pool instead of allocating one on every call
+	 * @param a = the array
+	 */
+	@SuppressWarnings("rawtypes")
+	public void sortBottomUp(Comparable[] a) {
+		sortBottomUp(a, AUX_POOL);
+	}
+
+	/**
+	 * Each pass merges from one array into the other and the next pass merges
+	 * back, so unlike merge() there is no copy into aux before every merge.
+	 * If the last pass leaves the result in aux it is copied back once.
+	 * @param a = the array
+	 * @param pool = where to borrow the aux array from
+	 */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	public void sortBottomUp(Comparable[] a, AuxBufferPool pool) {
+		int n = a.length;
+		if (n < 2) return;
+		for (int lo = 0; lo < n; lo += BOTTOM_UP_INITIAL_RUN)
+			InsertionSort.binarySort(a, lo, Math.min(lo + BOTTOM_UP_INITIAL_RUN, n) - 1);
+		if (n <= BOTTOM_UP_INITIAL_RUN) return;
+
+		Comparable[] aux = pool.acquire(n);
+		try {
+			Comparable[] src = a, dst = aux;
+			for (int width = BOTTOM_UP_INITIAL_RUN; width < n; width *= 2) {
+				for (int lo = 0; lo < n; lo += 2*width) {
+					int mid = Math.min(lo + width, n) - 1;
+					int hi = Math.min(lo + 2*width, n) - 1;
+					if (mid < hi && less(src[mid+1], src[mid])) merge(src, lo, mid, mid+1, hi, dst, lo);
+					else {
+						System.arraycopy(src, lo, dst, lo, hi - lo + 1);
+						if (METRICS) countWrites(hi - lo + 1);
+					}
+				}
+				Comparable[] t = src; src = dst; dst = t;
+			}
+			if (src != a) {
+				System.arraycopy(src, 0, a, 0, n);
+				if (METRICS) countWrites(n);
+			}
+		}
+		finally {
+			// even if a compareTo() throws, the pooled buffer mustn't keep the caller's items alive
+			pool.release(aux, n);
+		}
+	}
+
+	/**
+	 * stable merge sort that sorts the two halves as separate fork/join tasks
+	 * and merges large ranges in parallel, on the common pool
+	 * @param a = the array
+	 */
+	@SuppressWarnings("rawtypes")
+	public void parallelSort(Comparable[] a) {
+		parallelSort(a, DEFAULT_PARALLEL_CUTOFF);
+	}
+
+	/**
+	 * @param a = the array
+	 * @param cutoff = ranges smaller than this are handled by the sequential code
+	 */
+	@SuppressWarnings("rawtypes")
+	public void parallelSort(Comparable[] a, int cutoff) {
+		parallelSort(a, cutoff, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param a = the array
+	 * @param cutoff = ranges smaller than this are handled by the sequential code
+	 * @param pool = the pool to run the tasks on
+	 */
+	@SuppressWarnings("rawtypes")
+	public void parallelSort(Comparable[] a, int cutoff, ForkJoinPool pool) {
+		if (cutoff < 2) throw new IllegalArgumentException("cutoff must be at least 2: " + cutoff);
+		Comparable[] aux = new Comparable[a.length];
+		pool.invoke(new SortTask(a, aux, 0, a.length-1, cutoff, insertionCutoff));
+	}
+
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	private static class SortTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Comparable[] a, aux;
+		private final int lo, hi, cutoff, insertionCutoff;
+
+		SortTask(Comparable[] a, Comparable[] aux, int lo, int hi, int cutoff, int insertionCutoff) {
+			this.a = a; this.aux = aux;
+			this.lo = lo; this.hi = hi; this.cutoff = cutoff;
+			this.insertionCutoff = insertionCutoff;
+		}
+
+		protected void compute() {
+			if (hi - lo < cutoff) {
+				sort(a, aux, lo, hi, insertionCutoff);
+				return;
+			}
+			int mid = lo + (hi - lo) / 2;
+			invokeAll(new SortTask(a, aux, lo, mid, cutoff, insertionCutoff),
+					new SortTask(a, aux, mid+1, hi, cutoff, insertionCutoff));
+
+			if (!less(a[mid+1], a[mid])) return;
+
+			System.arraycopy(a, lo, aux, lo, hi - lo + 1);
+			if (METRICS) countWrites(hi - lo + 1);
+			new MergeTask(aux, lo, mid, mid+1, hi, a, lo, cutoff).compute();
+		}
+	}
+
+	/**
+	 * merges src[lo1..hi1] and src[lo2..hi2] into dst starting at k. Large merges
+	 * are split at the midpoint of the longer run, with a binary search for the
+	 * matching position in the other run, and the two halves merged in parallel.
+	 */
+	@SuppressWarnings("rawtypes")
+	private static class MergeTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Comparable[] src, dst;
+		private final int lo1, hi1, lo2, hi2, k, cutoff;
+
+		MergeTask(Comparable[] src, int lo1, int hi1, int lo2, int hi2, Comparable[] dst, int k, int cutoff) {
+			this.src = src; this.dst = dst;
+			this.lo1 = lo1; this.hi1 = hi1; this.lo2 = lo2; this.hi2 = hi2;
+			this.k = k; this.cutoff = cutoff;
+		}
+
+		protected void compute() {
+			int n1 = hi1 - lo1 + 1, n2 = hi2 - lo2 + 1;
+			if (n1 + n2 <= cutoff || n1 == 0 || n2 == 0) {
+				merge(src, lo1, hi1, lo2, hi2, dst, k);
+				return;
+			}
+			int m1, m2;
+			if (n1 >= n2) {
+				// right-run items equal to the split key must stay after it
+				m1 = lo1 + n1 / 2;
+				m2 = lowerBound(src, lo2, hi2, src[m1]);
+			}
+			else {
+				// left-run items equal to the split key must stay before it
+				m2 = lo2 + n2 / 2;
+				m1 = upperBound(src, lo1, hi1, src[m2]);
+			}
+			int k2 = k + (m1 - lo1) + (m2 - lo2);
+			invokeAll(new MergeTask(src, lo1, m1-1, lo2, m2-1, dst, k, cutoff),
+					new MergeTask(src, m1, hi1, m2, hi2, dst, k2, cutoff));
+		}
+	}
+
+	// sequential merge of src[lo1..hi1] and src[lo2..hi2] into dst starting at k
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	private static void merge(Comparable[] src, int lo1, int hi1, int lo2, int hi2, Comparable[] dst, int k) {
+		if (METRICS) countWrites((hi1 - lo1 + 1) + (hi2 - lo2 + 1));
+		int i = lo1, j = lo2;
+		while (i <= hi1 && j <= hi2) {
+			if (less(src[j], src[i])) dst[k++] = src[j++];
+			else dst[k++] = src[i++];
+		}
+		while (i <= hi1) dst[k++] = src[i++];
+		while (j <= hi2) dst[k++] = src[j++];
+	}
+
+	// first index in a[lo..hi] whose item is not less than key, or hi+1
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	private static int lowerBound(Comparable[] a, int lo, int hi, Comparable key) {
+		hi++;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (less(a[mid], key)) lo = mid + 1;
+			else hi = mid;
+		}
+		return lo;
+	}
+
+	// first index in a[lo..hi] whose item is greater than key, or hi+1
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	private static int upperBound(Comparable[] a, int lo, int hi, Comparable key) {
+		hi++;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (less(key, a[mid])) hi = mid;
+			else lo = mid + 1;
+		}
+		return lo;
+	}
+
+	private static void merge(int[] a, int[] aux, int lo, int mid, int hi) {
+		if (METRICS) countWrites(2 * (hi - lo + 1));
+		for (int k = lo; k <= hi; k++) { // copy
+			aux[k] = a[k];
+		}
+		int i = lo, j = mid+1;
+		for (int k = lo; k <= hi; k++) { // merge
+			if (i > mid) a[k] = aux[j++];
+			else if (j > hi) a[k] = aux[i++];
+			else if (less(aux[j], aux[i])) a[k] = aux[j++];
+			else a[k] = aux[i++];
+		}
+	}
+
+	private static void sort(int[] a, int[] aux, int low, int high) {
+		if (high - low < SortingNetwork.BASE_CASE_SIZE) {
+			SortingNetwork.sort(a, low, high);
+			return;
+		}
+		if (METRICS) enter();
+		int mid = low + (high - low) / 2;
+		sort(a, aux, low, mid);
+		sort(a, aux, mid+1, high);
+
+		// skip the merge if the halves are already in order
+		if (less(a[mid+1], a[mid])) merge(a, aux, low, mid, high);
+		if (METRICS) exit();
+	}
+
+	public void sort(int[] a) {
+		int[] aux = new int[a.length];
+		sort(a, aux, 0, a.length-1);
+	}
+
+	private static void merge(long[] a, long[] aux, int lo, int mid, int hi) {
+		if (METRICS) countWrites(2 * (hi - lo + 1));
+		for (int k = lo; k <= hi; k++) { // copy
+			aux[k] = a[k];
+		}
+		int i = lo, j = mid+1;
+		for (int k = lo; k <= hi; k++) { // merge
+			if (i > mid) a[k] = aux[j++];
+			else if (j > hi) a[k] = aux[i++];
+			else if (less(aux[j], aux[i])) a[k] = aux[j++];
+			else a[k] = aux[i++];
+		}
+	}
+
+	private static void sort(long[] a, long[] aux, int low, int high) {
+		if (high - low < SortingNetwork.BASE_CASE_SIZE) {
+			SortingNetwork.sort(a, low, high);
+			return;
+		}
+		if (METRICS) enter();
+		int mid = low + (high - low) / 2;
+		sort(a, aux, low, mid);
+		sort(a, aux, mid+1, high);
+
+		// skip the merge if the halves are already in order
+		if (less(a[mid+1], a[mid])) merge(a, aux, low, mid, high);
+		if (METRICS) exit();
+	}
+
+	public void sort(long[] a) {
+		long[] aux = new long[a.length];
+		sort(a, aux, 0, a.length-1);
+	}
+
+	private static void merge(double[] a, double[] aux, int lo, int mid, int hi) {
+		if (METRICS) countWrites(2 * (hi - lo + 1));
+		for (int k = lo; k <= hi; k++) { // copy
+			aux[k] = a[k];
+		}
+		int i = lo, j = mid+1;
+		for (int k = lo; k <= hi; k++) { // merge
+			if (i > mid) a[k] = aux[j++];
+			else if (j > hi) a[k] = aux[i++];
+			else if (less(aux[j], aux[i])) a[k] = aux[j++];
+			else a[k] = aux[i++];
+		}
+	}
+
+	private static void sort(double[] a, double[] aux, int low, int high) {
+		if (high - low < SortingNetwork.BASE_CASE_SIZE) {
+			// not SortingNetwork: its double network branches on NaN and -0.0 and is no faster
+			InsertionSort.sort(a, low, high);
+			return;
+		}
+		if (METRICS) enter();
+		int mid = low + (high - low) / 2;
+		sort(a, aux, low, mid);
+		sort(a, aux, mid+1, high);
+
+		// skip the merge if the halves are already in order
+		if (less(a[mid+1], a[mid])) merge(a, aux, low, mid, high);
+		if (METRICS) exit();
+	}
+
+	public void sort(double[] a) {
+		double[] aux = new double[a.length];
 		sort(a, aux, 0, a.length-1);
 	}
 
@@ -4,22 +4,24 @@
  *  Dependencies: StdIn.java StdOut.java
  *  Data files:   https://algs4.cs.princeton.edu/24pq/tinyPQ.txt
  *  
- *  Generic min priority queue implementation with a binary heap.
+ *  Generic min priority queue implementation with a d-ary heap.
  *  Can be used with a comparator instead of the natural order.
  *
  *  % java MinPQ < tinyPQ.txt
  *  E A E (6 left on pq)
  *
- *  We use a one-based array to simplify parent and child calculations.
- *
- *  Can be optimized by replacing full exchanges with half exchanges
- *  (ala insertion sort).
+ *  We use a zero-based array, so the children of k are d*k+1 to d*k+d
+ *  and its parent is (k-1)/d. Keys move with half exchanges (ala
+ *  insertion sort): the key being sifted is held aside and the keys it
+ *  passes shift into its hole.
  *
  ******************************************************************************/
 
 package com.gommeh.sorting;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 /**
@@ -29,7 +31,10 @@ import java.util.NoSuchElementException;
  *  testing if the priority queue is empty, and iterating through
  *  the keys.
  *  <p>
- *  This implementation uses a <em>binary heap</em>.
+ *  This implementation uses a <em>d-ary heap</em>, 4-ary by default.
+ *  A wider heap is shallower, so <em>insert</em> compares less and the
+ *  <em>d</em> children that <em>delete-the-minimum</em> scans sit next to
+ *  each other in memory; past 8 or so the extra compares per level win.
  *  The <em>insert</em> and <em>delete-the-minimum</em> operations take
  *  &Theta;(log <em>n</em>) amortized time, where <em>n</em> is the number
  *  of elements in the priority queue. This is an amortized bound
@@ -37,7 +42,9 @@ import java.util.NoSuchElementException;
  *  The <em>min</em>, <em>size</em>, and <em>is-empty</em> operations take
  *  &Theta;(1) time in the worst case.
  *  Construction takes time proportional to the specified capacity or the
- *  number of items used to initialize the data structure.
+ *  number of items used to initialize the data structure, and
+ *  <em>insert-all</em> of <em>m</em> keys takes time proportional to
+ *  <em>m</em> + log<sup>2</sup> <em>n</em>.
  *  <p>
  *  For additional documentation, see
  *  <a href="https://algs4.cs.princeton.edu/24pq">Section 2.4</a> of
@@ -49,9 +56,15 @@ import java.util.NoSuchElementException;
  *  @param <Key> the generic type of key on this priority queue
  */
 public class MinPQ<Key> implements Iterable<Key> {
-    private Key[] pq;                    // store items at indices 1 to n
-    private int n;                       // number of items on priority queue
-    private Comparator<Key> comparator;  // optional comparator
+    /**
+     * The arity used when none is given.
+     */
+    public static final int DEFAULT_ARITY = 4;
+
+    private Key[] pq;                          // store items at indices 0 to n-1
+    private int n;                             // number of items on priority queue
+    private final int d;                       // number of children per node
+    private final Comparator<Key> comparator;  // the natural order if none was given
 
     /**
      * Initializes an empty priority queue with the given initial capacity.
@@ -59,8 +72,7 @@ public class MinPQ<Key> implements Iterable<Key> {
      * @param  initCapacity the initial capacity of this priority queue
      */
     public MinPQ(int initCapacity) {
-        pq = (Key[]) new Object[initCapacity + 1];
-        n = 0;
+        this(initCapacity, null, DEFAULT_ARITY);
     }
 
     /**
@@ -78,8 +90,24 @@ public class MinPQ<Key> implements Iterable<Key> {
      * @param  comparator the order in which to compare the keys
      */
     public MinPQ(int initCapacity, Comparator<Key> comparator) {
-        this.comparator = comparator;
-        pq = (Key[]) new Object[initCapacity + 1];
+        this(initCapacity, comparator, DEFAULT_ARITY);
+    }
+
+    /**
+     * Initializes an empty priority queue with the given initial capacity,
+     * using the given comparator and a heap of the given arity.
+     *
+     * @param  initCapacity the initial capacity of this priority queue
+     * @param  comparator the order in which to compare the keys, or
+     *         {@code null} for their natural order
+     * @param  arity the number of children of each node in the heap
+     * @throws IllegalArgumentException unless {@code arity >= 2}
+     */
+    public MinPQ(int initCapacity, Comparator<Key> comparator, int arity) {
+        checkArity(arity);
+        this.comparator = comparator != null ? comparator : (Comparator<Key>) Comparator.naturalOrder();
+        this.d = arity;
+        pq = (Key[]) new Object[Math.max(1, initCapacity)];
         n = 0;
     }
 
@@ -100,13 +128,8 @@ public class MinPQ<Key> implements Iterable<Key> {
      * @param  keys the array of keys
      */
     public MinPQ(Key[] keys) {
-        n = keys.length;
-        pq = (Key[]) new Object[keys.length + 1];
-        for (int i = 0; i < n; i++)
-            pq[i+1] = keys[i];
-        for (int k = n/2; k >= 1; k--)
-            sink(k);
-        assert isMinHeap();
+        this(keys.length);
+        insertAll(keys);
     }
 
     /**
@@ -128,6 +151,15 @@ public class MinPQ<Key> implements Iterable<Key> {
         return n;
     }
 
+    /**
+     * Returns the number of children of each node in the heap.
+     *
+     * @return the arity of the heap
+     */
+    public int arity() {
+        return d;
+    }
+
     /**
      * Returns a smallest key on this priority queue.
      *
@@ -136,16 +168,14 @@ public class MinPQ<Key> implements Iterable<Key> {
      */
     public Key min() {
         if (isEmpty()) throw new NoSuchElementException("Priority queue underflow");
-        return pq[1];
+        return pq[0];
     }
 
     // resize the underlying array to have the given capacity
     private void resize(int capacity) {
-        assert capacity > n;
+        assert capacity >= n;
         Key[] temp = (Key[]) new Object[capacity];
-        for (int i = 1; i <= n; i++) {
-            temp[i] = pq[i];
-        }
+        System.arraycopy(pq, 0, temp, 0, n);
         pq = temp;
     }
 
@@ -156,11 +186,37 @@ public class MinPQ<Key> implements Iterable<Key> {
      */
     public void insert(Key x) {
         // double size of array if necessary
-        if (n == pq.length - 1) resize(2 * pq.length);
+        if (n == pq.length) resize(2 * pq.length);
 
         // add x, and percolate it up to maintain heap invariant
-        pq[++n] = x;
-        swim(n);
+        pq[n++] = x;
+        swim(n-1);
+        assert isMinHeap();
+    }
+
+    /**
+     * Adds all the given keys to this priority queue.
+     * <p>
+     * The keys are appended and the heap is then repaired bottom-up, one
+     * level at a time, by sinking every ancestor of a new key (Floyd's
+     * heap construction restricted to the part of the heap that changed).
+     * That takes time proportional to the number of keys added plus
+     * log<sup>2</sup> <em>n</em>, instead of one swim per key.
+     *
+     * @param  keys the keys to add to this priority queue
+     */
+    public void insertAll(Key[] keys) {
+        if (keys.length == 0) return;
+        if (n + keys.length > pq.length) resize(Math.max(n + keys.length, 2 * pq.length));
+        System.arraycopy(keys, 0, pq, n, keys.length);
+        int lo = n, hi = n + keys.length - 1;
+        n += keys.length;
+        while (hi > 0) {
+            lo = (lo - 1) / d;
+            hi = (hi - 1) / d;
+            for (int k = hi; k >= lo; k--)
+                sink(pq, 0, 1, k, n, d, comparator);
+        }
         assert isMinHeap();
     }
 
@@ -172,12 +228,40 @@ public class MinPQ<Key> implements Iterable<Key> {
      */
     public Key delMin() {
         if (isEmpty()) throw new NoSuchElementException("Priority queue underflow");
-        Key min = pq[1];
-        exch(1, n--);
-        sink(1);
-        pq[n+1] = null;     // to avoid loitering and help with garbage collection
-        if ((n > 0) && (n == (pq.length - 1) / 4)) resize(pq.length / 2);
+        Key min = removeMin();
+        if ((n > 0) && (n == pq.length / 4)) resize(pq.length / 2);
+        assert isMinHeap();
+        return min;
+    }
+
+    /**
+     * Removes and returns the {@code k} smallest keys on this priority queue,
+     * in ascending order.
+     * <p>
+     * The array is resized at most once, after all {@code k} keys are removed.
+     *
+     * @param  k the number of keys to remove
+     * @return the {@code k} smallest keys, smallest first
+     * @throws IllegalArgumentException if {@code k < 0}
+     * @throws NoSuchElementException if this priority queue has fewer than {@code k} keys
+     */
+    public List<Key> delMin(int k) {
+        if (k < 0) throw new IllegalArgumentException("k must not be negative: " + k);
+        if (k > n) throw new NoSuchElementException("Priority queue underflow");
+        List<Key> mins = new ArrayList<Key>(k);
+        for (int i = 0; i < k; i++)
+            mins.add(removeMin());
+        if ((n > 0) && (n <= pq.length / 4)) resize(Math.max(1, 2 * n));
         assert isMinHeap();
+        return mins;
+    }
+
+    // removes the root without resizing
+    private Key removeMin() {
+        Key min = pq[0];
+        pq[0] = pq[--n];
+        pq[n] = null;     // to avoid loitering and help with garbage collection
+        if (n > 1) sink(pq, 0, 1, 0, n, d, comparator);
         return min;
     }
 
@@ -187,60 +271,143 @@ public class MinPQ<Key> implements Iterable<Key> {
     ***************************************************************************/
 
     private void swim(int k) {
-        while (k > 1 && greater(k/2, k)) {
-            exch(k, k/2);
-            k = k/2;
+        Key x = pq[k];
+        while (k > 0) {
+            int parent = (k-1) / d;
+            if (!SortingAlgorithm.less(comparator, x, pq[parent])) break;
+            pq[k] = pq[parent];
+            k = parent;
         }
+        pq[k] = x;
     }
 
-    private void sink(int k) {
-        while (2*k <= n) {
-            int j = 2*k;
-            if (j < n && greater(j, j+1)) j++;
-            if (!greater(k, j)) break;
-            exch(k, j);
+    /**
+     * Sinks heap entry {@code k} of the {@code n}-entry d-ary heap that
+     * stores heap index {@code i} at {@code a[base + dir*i]}. The
+     * priority queue's own heap has base 0 and dir 1, the heapsort one
+     * runs leftwards from the end of the subarray.
+     */
+    private static <T> void sink(T[] a, int base, int dir, int k, int n, int d, Comparator<? super T> comparator) {
+        T x = a[base + dir*k];
+        while (true) {
+            int first = d*k + 1;
+            if (first >= n) break;
+            int last = Math.min(first + d, n);
+            int j = first;
+            for (int i = first + 1; i < last; i++)
+                if (SortingAlgorithm.less(comparator, a[base + dir*i], a[base + dir*j])) j = i;
+            if (!SortingAlgorithm.less(comparator, a[base + dir*j], x)) break;
+            a[base + dir*k] = a[base + dir*j];
+            if (SortingAlgorithm.METRICS) SortingAlgorithm.countWrites(1);
             k = j;
         }
+        a[base + dir*k] = x;
+    }
+
+    private static void checkArity(int arity) {
+        if (arity < 2) throw new IllegalArgumentException("arity must be at least 2: " + arity);
     }
 
    /***************************************************************************
-    * Helper functions for compares and swaps.
+    * In-place heapsort of a subarray, using the same sink() logic.
     ***************************************************************************/
-    private boolean greater(int i, int j) {
-        if (comparator == null) {
-            return ((Comparable<Key>) pq[i]).compareTo(pq[j]) > 0;
-        }
-        else {
-            return comparator.compare(pq[i], pq[j]) > 0;
-        }
+
+    /**
+     * Rearranges the array in ascending order using heapsort.
+     *
+     * @param a the array
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public static void heapsort(Comparable[] a) {
+        heapsort(a, 0, a.length - 1, Comparator.naturalOrder(), DEFAULT_ARITY);
     }
 
-    private void exch(int i, int j) {
-        Key swap = pq[i];
-        pq[i] = pq[j];
-        pq[j] = swap;
+    /**
+     * Rearranges the array in ascending order using heapsort, as ordered by
+     * the given comparator.
+     *
+     * @param a the array
+     * @param comparator the order in which to compare the keys
+     */
+    public static <T> void heapsort(T[] a, Comparator<? super T> comparator) {
+        heapsort(a, 0, a.length - 1, comparator, DEFAULT_ARITY);
+    }
+
+    /**
+     * Rearranges {@code a[lo..hi]} in ascending order using heapsort.
+     *
+     * @param a the array
+     * @param lo the left endpoint (inclusive)
+     * @param hi the right endpoint (inclusive)
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public static void heapsort(Comparable[] a, int lo, int hi) {
+        heapsort(a, lo, hi, Comparator.naturalOrder(), DEFAULT_ARITY);
     }
 
-    // is pq[1..n] a min heap?
+    /**
+     * Rearranges {@code a[lo..hi]} in ascending order using heapsort, as
+     * ordered by the given comparator.
+     *
+     * @param a the array
+     * @param lo the left endpoint (inclusive)
+     * @param hi the right endpoint (inclusive)
+     * @param comparator the order in which to compare the keys
+     */
+    public static <T> void heapsort(T[] a, int lo, int hi, Comparator<? super T> comparator) {
+        heapsort(a, lo, hi, comparator, DEFAULT_ARITY);
+    }
+
+    /**
+     * Rearranges {@code a[lo..hi]} in ascending order using heapsort on a
+     * heap of the given arity.
+     * <p>
+     * The subarray is treated as a min heap rooted at {@code a[hi]} and laid
+     * out leftwards, so heap index {@code k} is stored at {@code a[hi-k]}.
+     * Each delete-the-minimum moves the root to the leftmost heap entry,
+     * which leaves the smallest remaining key in its final position.
+     * Takes &Theta;(<em>n</em> log <em>n</em>) time in the worst case and no extra memory.
+     *
+     * @param a the array
+     * @param lo the left endpoint (inclusive)
+     * @param hi the right endpoint (inclusive)
+     * @param comparator the order in which to compare the keys
+     * @param arity the number of children of each node in the heap
+     * @throws IllegalArgumentException unless {@code 0 <= lo <= hi+1 <= a.length}
+     *         and {@code arity >= 2}
+     */
+    public static <T> void heapsort(T[] a, int lo, int hi, Comparator<? super T> comparator, int arity) {
+        SortingAlgorithm.checkRange(a.length, lo, hi + 1);
+        checkArity(arity);
+        int n = hi - lo + 1;
+        if (n < 2) return;
+        for (int k = (n-2) / arity; k >= 0; k--)
+            sink(a, hi, -1, k, n, arity, comparator);
+        while (n > 1) {
+            T min = a[hi];
+            a[hi] = a[hi-n+1];
+            a[hi-n+1] = min;
+            if (SortingAlgorithm.METRICS) SortingAlgorithm.countExchange();
+            sink(a, hi, -1, 0, --n, arity, comparator);
+        }
+    }
+
+   /***************************************************************************
+    * Helper functions for checking the heap invariant.
+    ***************************************************************************/
+
+    // is pq[0..n-1] a min heap?
     private boolean isMinHeap() {
-        for (int i = 1; i <= n; i++) {
+        for (int i = 0; i < n; i++) {
             if (pq[i] == null) return false;
         }
-        for (int i = n+1; i < pq.length; i++) {
+        for (int i = n; i < pq.length; i++) {
             if (pq[i] != null) return false;
         }
-        if (pq[0] != null) return false;
-        return isMinHeapOrdered(1);
-    }
-
-    // is subtree of pq[1..n] rooted at k a min heap?
-    private boolean isMinHeapOrdered(int k) {
-        if (k > n) return true;
-        int left = 2*k;
-        int right = 2*k + 1;
-        if (left  <= n && greater(k, left))  return false;
-        if (right <= n && greater(k, right)) return false;
-        return isMinHeapOrdered(left) && isMinHeapOrdered(right);
+        for (int i = 1; i < n; i++) {
+            if (comparator.compare(pq[(i-1) / d], pq[i]) > 0) return false;
+        }
+        return true;
     }
 
 
@@ -263,9 +430,8 @@ public class MinPQ<Key> implements Iterable<Key> {
         // add all items to copy of heap
         // takes linear time since already in heap order so no keys move
         public HeapIterator() {
-            if (comparator == null) copy = new MinPQ<Key>(size());
-            else                    copy = new MinPQ<Key>(size(), comparator);
-            for (int i = 1; i <= n; i++)
+            copy = new MinPQ<Key>(size(), comparator, d);
+            for (int i = 0; i < n; i++)
                 copy.insert(pq[i]);
         }
 
@@ -0,0 +1,289 @@
+package com.gommeh.sorting;
+
+import java.util.Comparator;
+
+/**
+ * Adaptive, stable merge sort in the style of TimSort. Instead of splitting
+ * at the midpoint it walks the input looking for runs that are already in
+ * order, reverses strictly descending runs, pads short runs out to minRun
+ * with binary insertion sort, and merges runs off a stack that keeps their
+ * lengths balanced. Merges switch to galloping (exponential search) when one
+ * run keeps winning, so inputs that are nearly sorted take close to linear time.
+ */
+public class NaturalMergeSort extends SortingAlgorithm {
+
+	// runs shorter than this get padded out with binary insertion sort
+	private static final int MIN_MERGE = 32;
+
+	// how many wins in a row before a merge starts galloping
+	private static final int MIN_GALLOP = 7;
+
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	public void sort(Comparable[] a) {
+		sort(a, 0, a.length, Comparator.naturalOrder());
+	}
+
+	public <T> void sort(T[] a, int from, int to, Comparator<? super T> c) {
+		checkRange(a.length, from, to);
+		if (to - from < 2) return;
+		new Merger<T>(a, from, to, c).sort();
+	}
+
+	/**
+	 * the state of a single sort: the run stack, the merge buffer and the
+	 * current galloping threshold
+	 */
+	private static class Merger<T> {
+		private final T[] a;
+		private final int from, to;
+		private final Comparator<? super T> c;
+		private Object[] tmp = new Object[0];
+		private int minGallop = MIN_GALLOP;
+
+		// runs still waiting to be merged; 49 entries covers any int length once the invariants hold
+		private final int[] runBase = new int[49];
+		private final int[] runLen = new int[49];
+		private int stackSize = 0;
+
+		Merger(T[] a, int from, int to, Comparator<? super T> c) {
+			this.a = a;
+			this.from = from;
+			this.to = to;
+			this.c = c;
+		}
+
+		void sort() {
+			int minRun = minRunLength(to - from);
+			int lo = from, remaining = to - from;
+			do {
+				int run = countRunAndMakeAscending(a, lo, to, c);
+				if (run < minRun) {
+					int force = Math.min(remaining, minRun);
+					binarySort(a, lo, lo + force, lo + run, c);
+					run = force;
+				}
+				runBase[stackSize] = lo;
+				runLen[stackSize] = run;
+				stackSize++;
+				mergeCollapse();
+				lo += run;
+				remaining -= run;
+			} while (remaining != 0);
+
+			while (stackSize > 1) { // merge whatever is left, smaller neighbour first
+				int i = stackSize - 2;
+				if (i > 0 && runLen[i-1] < runLen[i+1]) i--;
+				mergeAt(i);
+			}
+		}
+
+		/**
+		 * merges runs until, for the top three X, Y, Z on the stack,
+		 * len(X) > len(Y) + len(Z) and len(Y) > len(Z) (also checked one
+		 * level deeper, which the original TimSort forgot)
+		 */
+		private void mergeCollapse() {
+			while (stackSize > 1) {
+				int i = stackSize - 2;
+				if ((i > 0 && runLen[i-1] <= runLen[i] + runLen[i+1])
+						|| (i > 1 && runLen[i-2] <= runLen[i-1] + runLen[i])) {
+					if (runLen[i-1] < runLen[i+1]) i--;
+				}
+				else if (runLen[i] > runLen[i+1]) {
+					break;
+				}
+				mergeAt(i);
+			}
+		}
+
+		// merges the runs at stack positions i and i+1
+		private void mergeAt(int i) {
+			int base1 = runBase[i], len1 = runLen[i];
+			int base2 = runBase[i+1], len2 = runLen[i+1];
+
+			runLen[i] = len1 + len2;
+			if (i == stackSize - 3) {
+				runBase[i+1] = runBase[i+2];
+				runLen[i+1] = runLen[i+2];
+			}
+			stackSize--;
+
+			// items at the front of run 1 that are <= run 2's first item are already in place
+			int k = gallopRight(a[base2], a, base1, len1, c);
+			base1 += k;
+			len1 -= k;
+			if (len1 == 0) return;
+
+			// so are items at the back of run 2 that are >= run 1's last item
+			len2 = gallopLeft(a[base1 + len1 - 1], a, base2, len2, c);
+			if (len2 == 0) return;
+
+			mergeLo(base1, len1, base2, len2);
+		}
+
+		/**
+		 * merges a[base1..base1+len1) with the run that follows it, copying
+		 * only the first run out to tmp. Assumes a[base2] < a[base1] and that
+		 * the last item of run 1 is greater than every item of run 2.
+		 */
+		@SuppressWarnings("unchecked")
+		private void mergeLo(int base1, int len1, int base2, int len2) {
+			if (tmp.length < len1) tmp = new Object[Math.max(len1, Math.min(to - from, 2 * tmp.length))];
+			T[] tmp = (T[]) this.tmp;
+			if (METRICS) countWrites(2 * len1 + len2); // out to tmp, then every slot once
+			System.arraycopy(a, base1, tmp, 0, len1);
+
+			int c1 = 0, c2 = base2, dest = base1;
+			int end2 = base2 + len2;
+			a[dest++] = a[c2++];
+
+			outer:
+			while (c2 < end2 && c1 < len1) {
+				int count1 = 0, count2 = 0;
+
+				// one item at a time until one run wins minGallop times in a row
+				do {
+					if (less(c, a[c2], tmp[c1])) {
+						a[dest++] = a[c2++];
+						count2++;
+						count1 = 0;
+						if (c2 == end2) break outer;
+					}
+					else {
+						a[dest++] = tmp[c1++];
+						count1++;
+						count2 = 0;
+						if (c1 == len1) break outer;
+					}
+				} while ((count1 | count2) < minGallop);
+
+				// gallop while that keeps paying off
+				do {
+					count1 = gallopRight(a[c2], tmp, c1, len1 - c1, c);
+					if (count1 != 0) {
+						System.arraycopy(tmp, c1, a, dest, count1);
+						dest += count1;
+						c1 += count1;
+						if (c1 == len1) break outer;
+					}
+					a[dest++] = a[c2++];
+					if (c2 == end2) break outer;
+
+					count2 = gallopLeft(tmp[c1], a, c2, end2 - c2, c);
+					if (count2 != 0) {
+						System.arraycopy(a, c2, a, dest, count2);
+						dest += count2;
+						c2 += count2;
+						if (c2 == end2) break outer;
+					}
+					a[dest++] = tmp[c1++];
+					if (c1 == len1) break outer;
+					if (minGallop > 1) minGallop--;
+				} while (count1 >= MIN_GALLOP || count2 >= MIN_GALLOP);
+				minGallop += 2; // penalize leaving gallop mode
+			}
+
+			// whatever is left of run 2 is already in place
+			if (c1 < len1) System.arraycopy(tmp, c1, a, dest, len1 - c1);
+		}
+	}
+
+	/**
+	 * finds the run starting at a[lo] and reverses it if it is strictly
+	 * descending (strictly, so reversing can't reorder equal keys)
+	 * @return the length of the run
+	 */
+	private static <T> int countRunAndMakeAscending(T[] a, int lo, int hi, Comparator<? super T> c) {
+		int runHi = lo + 1;
+		if (runHi == hi) return 1;
+
+		if (less(c, a[runHi++], a[lo])) {
+			while (runHi < hi && less(c, a[runHi], a[runHi-1])) runHi++;
+			reverse(a, lo, runHi - 1);
+		}
+		else {
+			while (runHi < hi && !less(c, a[runHi], a[runHi-1])) runHi++;
+		}
+		return runHi - lo;
+	}
+
+	private static void reverse(Object[] a, int lo, int hi) {
+		while (lo < hi) exch(a, lo++, hi--);
+	}
+
+	/**
+	 * sorts a[lo..hi) given that a[lo..start) is already sorted, by binary
+	 * searching for each new item's slot (after any equal keys) and shifting
+	 * the tail over with one arraycopy
+	 */
+	private static <T> void binarySort(T[] a, int lo, int hi, int start, Comparator<? super T> c) {
+		for (int i = start; i < hi; i++) {
+			T pivot = a[i];
+			int left = lo, right = i;
+			while (left < right) {
+				int mid = (left + right) >>> 1;
+				if (less(c, pivot, a[mid])) right = mid;
+				else left = mid + 1;
+			}
+			System.arraycopy(a, left, a, left + 1, i - left);
+			a[left] = pivot;
+			if (METRICS) countWrites(i - left + 1);
+		}
+	}
+
+	/**
+	 * shortest run worth merging: n itself if n < MIN_MERGE, otherwise a
+	 * length between MIN_MERGE/2 and MIN_MERGE such that n/minRun is a power
+	 * of two or just under one, which keeps the final merges balanced
+	 */
+	private static int minRunLength(int n) {
+		int r = 0;
+		while (n >= MIN_MERGE) {
+			r |= (n & 1);
+			n >>= 1;
+		}
+		return n + r;
+	}
+
+	// how many items at the front of a[base..base+len) are less than key
+	private static <T> int gallopLeft(T key, T[] a, int base, int len, Comparator<? super T> c) {
+		if (len == 0 || !less(c, a[base], key)) return 0;
+		int last = 0, ofs = 1;
+		while (ofs < len && less(c, a[base + ofs], key)) {
+			last = ofs;
+			ofs = (ofs << 1) + 1;
+			if (ofs <= 0) ofs = len; // int overflow
+		}
+		if (ofs > len) ofs = len;
+
+		// now a[base+last] < key <= a[base+ofs], so binary search in between
+		last++;
+		while (last < ofs) {
+			int mid = last + ((ofs - last) >>> 1);
+			if (less(c, a[base + mid], key)) last = mid + 1;
+			else ofs = mid;
+		}
+		return ofs;
+	}
+
+	// how many items at the front of a[base..base+len) are less than or equal to key
+	private static <T> int gallopRight(T key, T[] a, int base, int len, Comparator<? super T> c) {
+		if (len == 0 || less(c, key, a[base])) return 0;
+		int last = 0, ofs = 1;
+		while (ofs < len && !less(c, key, a[base + ofs])) {
+			last = ofs;
+			ofs = (ofs << 1) + 1;
+			if (ofs <= 0) ofs = len; // int overflow
+		}
+		if (ofs > len) ofs = len;
+
+		// now a[base+last] <= key < a[base+ofs], so binary search in between
+		last++;
+		while (last < ofs) {
+			int mid = last + ((ofs - last) >>> 1);
+			if (less(c, key, a[base + mid])) ofs = mid;
+			else last = mid + 1;
+		}
+		return ofs;
+	}
+}
@@ -0,0 +1,122 @@
+package com.gommeh.sorting;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Selection and partial sorting, for when only the first k items of the
+ * sorted order are needed.
+ * <p>
+ * selectNth() and partialSort() work in place with introselect: quickselect
+ * on Quicksort.partition() around median-of-3 pivots, with a depth budget
+ * of 2 lg N after which the remaining range is heapsorted. That is O(N)
+ * expected and O(N log N) worst case for the selection, plus O(k log k) to
+ * sort the first k. topK() leaves its input alone and keeps the best k
+ * seen so far on a bounded MinPQ, which also works on streams, in
+ * O(N log k) time and O(k) memory.
+ */
+public class PartialSort {
+
+	// topK() starts a heap this big when it can't tell how many items are coming
+	private static final int INITIAL_CAPACITY = 16;
+
+	// don't instantiate
+	private PartialSort() { }
+
+	/**
+	 * rearranges a so that a[n] is the item that would be there if a were
+	 * sorted, everything before it is no greater and everything after it no smaller
+	 * @param a = the array
+	 * @param n = the index to select, 0 for the minimum
+	 * @return a[n]
+	 */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	public static Comparable selectNth(Comparable[] a, int n) {
+		return selectNth(a, n, Comparator.naturalOrder());
+	}
+
+	public static <T> T selectNth(T[] a, int n, Comparator<? super T> c) {
+		if (n < 0 || n >= a.length) throw new IllegalArgumentException("n must be between 0 and " + (a.length - 1) + ": " + n);
+		int lo = 0, hi = a.length - 1;
+		int depth = 2 * Introsort.floorLg(a.length);
+		while (hi > lo) {
+			if (depth-- == 0) {
+				MinPQ.heapsort(a, lo, hi, c);
+				break;
+			}
+			Introsort.medianOf3(a, lo, lo + (hi - lo) / 2, hi, c);
+			int j = Quicksort.partition(a, lo, hi, c);
+			if (j > n) hi = j - 1;
+			else if (j < n) lo = j + 1;
+			else break;
+		}
+		return a[n];
+	}
+
+	/**
+	 * rearranges a so that a[0..k-1] are its k smallest items in ascending
+	 * order; the order of the rest is unspecified
+	 * @param a = the array
+	 * @param k = how many items to put in place
+	 */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	public static void partialSort(Comparable[] a, int k) {
+		partialSort(a, k, Comparator.naturalOrder());
+	}
+
+	public static <T> void partialSort(T[] a, int k, Comparator<? super T> c) {
+		if (k < 0 || k > a.length) throw new IllegalArgumentException("k must be between 0 and " + a.length + ": " + k);
+		if (k == 0) return;
+		if (k < a.length) selectNth(a, k - 1, c);
+		new Introsort().sort(a, 0, k, c);
+	}
+
+	/**
+	 * the first k items of a in the comparator's order, without changing a;
+	 * pass a reversed comparator to get the k largest
+	 * @param a = the items
+	 * @param k = how many to return
+	 * @param c = the ordering
+	 * @return a list of at most k items, in order
+	 */
+	public static <T> List<T> topK(T[] a, int k, Comparator<? super T> c) {
+		return topK(Arrays.asList(a), k, c);
+	}
+
+	/**
+	 * the first k items of a stream in the comparator's order. Keeps the k
+	 * best so far on a MinPQ ordered backwards, so the worst of them is on
+	 * top and is the one evicted when a better item arrives.
+	 * @param items = the items; only iterated once. If it's a Collection, the
+	 *        heap is sized for min(k, size()) items up front, otherwise it grows
+	 * @param k = how many to return
+	 * @param c = the ordering
+	 * @return a list of at most k items, in order
+	 */
+	public static <T> List<T> topK(Iterable<? extends T> items, int k, Comparator<? super T> c) {
+		if (k < 0) throw new IllegalArgumentException("k must not be negative: " + k);
+		List<T> result = new ArrayList<>();
+		if (k == 0) return result;
+
+		int capacity = items instanceof Collection ? Math.min(k, ((Collection<?>) items).size()) : Math.min(k, INITIAL_CAPACITY);
+		Comparator<T> reversed = (x, y) -> c.compare(y, x);
+		MinPQ<T> pq = new MinPQ<T>(capacity + 1, reversed);
+		Iterator<? extends T> it = items.iterator();
+		while (it.hasNext()) {
+			T item = it.next();
+			if (pq.size() < k) pq.insert(item);
+			else if (c.compare(item, pq.min()) < 0) {
+				pq.delMin();
+				pq.insert(item);
+			}
+		}
+		while (!pq.isEmpty()) result.add(pq.delMin());
+		Collections.reverse(result);
+		return result;
+	}
+}
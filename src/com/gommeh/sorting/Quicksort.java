@@ -1,13 +1,59 @@
 package com.gommeh.sorting;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
 public class Quicksort extends SortingAlgorithm {
 
+	// partitions smaller than this are sorted sequentially by parallelSort()
+	public static final int DEFAULT_PARALLEL_CUTOFF = 1 << 13;
+
+	/**
+	 * how the Comparable[] sorts split each subarray
+	 * HOARE = single pivot, the classic partition()
+	 * THREE_WAY = Dijkstra's 3-way partitioning, keys equal to the pivot are never touched again
+	 * DUAL_PIVOT = Yaroslavskiy's two-pivot partitioning into three ranges
+	 */
+	public enum Partitioning { HOARE, THREE_WAY, DUAL_PIVOT }
+
+	// subarrays of at most this many items more than one are insertion sorted instead of partitioned
+	public static final int DEFAULT_INSERTION_CUTOFF = 16;
+
+	private final Partitioning partitioning;
+	private final int insertionCutoff;
+
+	public Quicksort() {
+		this(Partitioning.HOARE);
+	}
+
+	public Quicksort(Partitioning partitioning) {
+		this(partitioning, DEFAULT_INSERTION_CUTOFF);
+	}
+
+	/**
+	 * @param partitioning = how to split each subarray
+	 * @param insertionCutoff = sort(Comparable[]) hands subarrays a[lo..hi] with
+	 *        hi - lo <= insertionCutoff to sentinel insertion sort; 0 turns it off
+	 */
+	public Quicksort(Partitioning partitioning, int insertionCutoff) {
+		if (partitioning == null) throw new IllegalArgumentException("partitioning must not be null");
+		if (insertionCutoff < 0) throw new IllegalArgumentException("insertionCutoff must not be negative: " + insertionCutoff);
+		this.partitioning = partitioning;
+		this.insertionCutoff = insertionCutoff;
+	}
+
 	private static int partition(Comparable[] a, int lo, int hi) {
 		int i = lo, j = hi+1;
 
 		while (true) {
 			// find item on left to swap
-			while (less(a[++i], a[0])) if (i == hi) break;
+			while (less(a[++i], a[lo])) if (i == hi) break;
 
 			// find item on right to swap
 			while (less(a[lo], a[--j])) if (j == lo) break;
@@ -21,17 +67,422 @@ public class Quicksort extends SortingAlgorithm {
 
 	}
 
+	/**
+	 * rearranges a[lo..hi] into a[lo..lt-1] < v = a[lt..gt] < a[gt+1..hi]
+	 * where v is the original a[lo]
+	 * @return lt and gt packed into one long, see lo() and hi()
+	 */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	private static long partition3way(Comparable[] a, int lo, int hi) {
+		int lt = lo, gt = hi, i = lo+1;
+		Comparable v = a[lo];
+		while (i <= gt) {
+			int cmp = a[i].compareTo(v);
+			if (METRICS) countCompare();
+			if (cmp < 0) exch(a, lt++, i++);
+			else if (cmp > 0) exch(a, i, gt--);
+			else i++;
+		}
+		return pack(lt, gt);
+	}
+
+	/**
+	 * picks p = min(a[lo], a[hi]) and q = max(a[lo], a[hi]) as pivots and
+	 * rearranges a[lo..hi] into a[lo..lt-1] < p = a[lt] <= a[lt+1..gt-1] <= a[gt] = q < a[gt+1..hi]
+	 * @return lt and gt packed into one long, see lo() and hi()
+	 */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	private static long partitionDualPivot(Comparable[] a, int lo, int hi) {
+		if (less(a[hi], a[lo])) exch(a, lo, hi);
+		int lt = lo+1, gt = hi-1, i = lo+1;
+		while (i <= gt) {
+			if (less(a[i], a[lo])) exch(a, lt++, i++);
+			else if (less(a[hi], a[i])) exch(a, i, gt--);
+			else i++;
+		}
+		exch(a, lo, --lt);
+		exch(a, hi, ++gt);
+		return pack(lt, gt);
+	}
+
+	// two partition boundaries in one long, so the partition methods don't allocate
+	private static long pack(int lt, int gt) {
+		return ((long) lt << 32) | (gt & 0xffffffffL);
+	}
+
+	private static int lo(long bounds) {
+		return (int) (bounds >>> 32);
+	}
+
+	private static int hi(long bounds) {
+		return (int) bounds;
+	}
+
 	public void sort(Comparable[] a) {
 		StdRandom.shuffle(a); // shuffle needed for performance guarantee
 		sort(a, 0, a.length -1);
 	}
 
+	@SuppressWarnings("unchecked")
 	private void sort(Comparable[] a, int lo, int hi) {
+		if (hi <= lo + insertionCutoff) {
+			// every subarray but the leftmost sits just right of an earlier pivot
+			// that is no greater than any of its items, which makes a free sentinel
+			if (lo == 0) InsertionSort.sentinelSort(a, lo, hi);
+			else InsertionSort.unguardedSort(a, lo, hi);
+			return;
+		}
+		if (METRICS) enter();
+		switch (partitioning) {
+		case THREE_WAY: {
+			long bounds = partition3way(a, lo, hi);
+			sort(a, lo, lo(bounds)-1);
+			sort(a, hi(bounds)+1, hi);
+			break;
+		}
+		case DUAL_PIVOT: {
+			long bounds = partitionDualPivot(a, lo, hi);
+			int lt = lo(bounds), gt = hi(bounds);
+			sort(a, lo, lt-1);
+			if (less(a[lt], a[gt])) sort(a, lt+1, gt-1); // equal pivots mean the middle is all equal
+			sort(a, gt+1, hi);
+			break;
+		}
+		default: {
+			int j = partition(a, lo, hi);
+			sort(a, lo, j-1);
+			sort(a, j+1, hi);
+		}
+		}
+		if (METRICS) exit();
+	}
+
+	public <T> void sort(T[] a, int from, int to, Comparator<? super T> c) {
+		checkRange(a.length, from, to);
+		StdRandom.shuffle(a, from, to); // shuffle needed for performance guarantee
+		sortRange(a, from, to-1, c);
+	}
+
+	// sorts a[lo..hi] inclusive with the configured partitioning
+	private <T> void sortRange(T[] a, int lo, int hi, Comparator<? super T> c) {
 		if (hi <= lo) return;
+		if (METRICS) enter();
+		switch (partitioning) {
+		case THREE_WAY: {
+			long bounds = partition3way(a, lo, hi, c);
+			sortRange(a, lo, lo(bounds)-1, c);
+			sortRange(a, hi(bounds)+1, hi, c);
+			break;
+		}
+		case DUAL_PIVOT: {
+			long bounds = partitionDualPivot(a, lo, hi, c);
+			int lt = lo(bounds), gt = hi(bounds);
+			sortRange(a, lo, lt-1, c);
+			if (less(c, a[lt], a[gt])) sortRange(a, lt+1, gt-1, c); // equal pivots mean the middle is all equal
+			sortRange(a, gt+1, hi, c);
+			break;
+		}
+		default: {
+			int j = partition(a, lo, hi, c);
+			sortRange(a, lo, j-1, c);
+			sortRange(a, j+1, hi, c);
+		}
+		}
+		if (METRICS) exit();
+	}
+
+	// comparator versions of the three partitioning methods above;
+	// partition() is package-private so Introsort can partition the same way
+	static <T> int partition(T[] a, int lo, int hi, Comparator<? super T> c) {
+		int i = lo, j = hi+1;
+		T v = a[lo];
+
+		while (true) {
+			while (less(c, a[++i], v)) if (i == hi) break;
+			while (less(c, v, a[--j])) if (j == lo) break;
+			if (i >= j) break;
+			exch(a, i, j);
+		}
+
+		exch(a, lo, j);
+		return j;
+	}
+
+	private static <T> long partition3way(T[] a, int lo, int hi, Comparator<? super T> c) {
+		int lt = lo, gt = hi, i = lo+1;
+		T v = a[lo];
+		while (i <= gt) {
+			int cmp = c.compare(a[i], v);
+			if (METRICS) countCompare();
+			if (cmp < 0) exch(a, lt++, i++);
+			else if (cmp > 0) exch(a, i, gt--);
+			else i++;
+		}
+		return pack(lt, gt);
+	}
+
+	private static <T> long partitionDualPivot(T[] a, int lo, int hi, Comparator<? super T> c) {
+		if (less(c, a[hi], a[lo])) exch(a, lo, hi);
+		int lt = lo+1, gt = hi-1, i = lo+1;
+		while (i <= gt) {
+			if (less(c, a[i], a[lo])) exch(a, lt++, i++);
+			else if (less(c, a[hi], a[i])) exch(a, i, gt--);
+			else i++;
+		}
+		exch(a, lo, --lt);
+		exch(a, hi, ++gt);
+		return pack(lt, gt);
+	}
+
+	/**
+	 * quicksort that shuffles in parallel and then hands the two sides of
+	 * every large partition to the common fork/join pool as separate tasks
+	 * @param a = the array
+	 */
+	@SuppressWarnings("rawtypes")
+	public void parallelSort(Comparable[] a) {
+		parallelSort(a, DEFAULT_PARALLEL_CUTOFF);
+	}
+
+	/**
+	 * @param a = the array
+	 * @param cutoff = partitions smaller than this are sorted sequentially
+	 */
+	@SuppressWarnings("rawtypes")
+	public void parallelSort(Comparable[] a, int cutoff) {
+		parallelSort(a, cutoff, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param a = the array
+	 * @param cutoff = partitions smaller than this are sorted sequentially
+	 * @param pool = the pool to run the tasks on
+	 */
+	@SuppressWarnings("rawtypes")
+	public void parallelSort(Comparable[] a, int cutoff, ForkJoinPool pool) {
+		if (cutoff < 1) throw new IllegalArgumentException("cutoff must be positive: " + cutoff);
+		parallelShuffle(a, cutoff, pool); // shuffle needed for performance guarantee
+		pool.invoke(new SortTask(a, 0, a.length-1, cutoff));
+	}
+
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	private class SortTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Comparable[] a;
+		private final int lo, hi, cutoff;
+
+		SortTask(Comparable[] a, int lo, int hi, int cutoff) {
+			this.a = a;
+			this.lo = lo; this.hi = hi; this.cutoff = cutoff;
+		}
+
+		protected void compute() {
+			if (hi - lo < cutoff) {
+				sort(a, lo, hi);
+				return;
+			}
+			switch (partitioning) {
+			case THREE_WAY: {
+				long bounds = partition3way(a, lo, hi);
+				invokeAll(new SortTask(a, lo, lo(bounds)-1, cutoff), new SortTask(a, hi(bounds)+1, hi, cutoff));
+				break;
+			}
+			case DUAL_PIVOT: {
+				long bounds = partitionDualPivot(a, lo, hi);
+				int lt = lo(bounds), gt = hi(bounds);
+				if (less(a[lt], a[gt]))
+					invokeAll(new SortTask(a, lo, lt-1, cutoff), new SortTask(a, lt+1, gt-1, cutoff), new SortTask(a, gt+1, hi, cutoff));
+				else
+					invokeAll(new SortTask(a, lo, lt-1, cutoff), new SortTask(a, gt+1, hi, cutoff));
+				break;
+			}
+			default: {
+				int j = partition(a, lo, hi);
+				invokeAll(new SortTask(a, lo, j-1, cutoff), new SortTask(a, j+1, hi, cutoff));
+			}
+			}
+		}
+	}
+
+	/**
+	 * Rao-Sandelius shuffle: every element draws a random bucket, the buckets
+	 * are scattered into place with prefix sums, and then each bucket gets an
+	 * ordinary Knuth shuffle. Labelling, scattering and the per-bucket shuffles
+	 * all run as parallel tasks, and the result is still a uniform permutation.
+	 */
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	private static void parallelShuffle(Comparable[] a, int cutoff, ForkJoinPool pool) {
+		int n = a.length;
+		if (n <= cutoff || pool.getParallelism() == 1) {
+			StdRandom.shuffle(a);
+			return;
+		}
+		int buckets = 4 * pool.getParallelism();
+		int blocks = buckets;
+		int blockSize = (n + blocks - 1) / blocks;
+
+		// one independent stream per task, all derived from StdRandom's seed
+		SplittableRandom master = new SplittableRandom(StdRandom.uniform(Long.MAX_VALUE));
+		SplittableRandom[] random = new SplittableRandom[blocks];
+		for (int b = 0; b < blocks; b++) random[b] = master.split();
+
+		int[] label = new int[n];
+		int[][] count = new int[blocks][buckets];
+		forEach(pool, blocks, b -> {
+			for (int i = b * blockSize, end = Math.min(n, i + blockSize); i < end; i++) {
+				label[i] = random[b].nextInt(buckets);
+				count[b][label[i]]++;
+			}
+		});
+
+		// offset[b][c] = where block b writes its first element of bucket c
+		int[][] offset = new int[blocks][buckets];
+		int[] start = new int[buckets + 1];
+		int sum = 0;
+		for (int c = 0; c < buckets; c++) {
+			start[c] = sum;
+			for (int b = 0; b < blocks; b++) {
+				offset[b][c] = sum;
+				sum += count[b][c];
+			}
+		}
+		start[buckets] = n;
+
+		Comparable[] aux = new Comparable[n];
+		forEach(pool, blocks, b -> {
+			int[] next = offset[b];
+			for (int i = b * blockSize, end = Math.min(n, i + blockSize); i < end; i++)
+				aux[next[label[i]]++] = a[i];
+		});
+
+		forEach(pool, buckets, c -> {
+			SplittableRandom r = random[c % blocks].split();
+			for (int i = start[c]; i < start[c+1]; i++) {
+				int k = i + r.nextInt(start[c+1] - i); // between i and the end of the bucket
+				Comparable t = aux[k];
+				aux[k] = aux[i];
+				a[i] = t;
+			}
+		});
+	}
+
+	// runs body for 0..n-1 as separate tasks on the pool and waits for all of them
+	static void forEach(ForkJoinPool pool, int n, IntConsumer body) {
+		List<ForkJoinTask<?>> tasks = new ArrayList<>(n);
+		for (int i = 0; i < n; i++) {
+			final int t = i;
+			tasks.add(ForkJoinTask.adapt(() -> body.accept(t)));
+		}
+		pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+	}
+
+	static int partition(int[] a, int lo, int hi) {
+		int i = lo, j = hi+1;
+		int v = a[lo];
+
+		while (true) {
+			// find item on left to swap
+			while (less(a[++i], v)) if (i == hi) break;
+
+			// find item on right to swap
+			while (less(v, a[--j])) if (j == lo) break;
+
+			if (i >= j) break; // check if pointers cross
+			exch(a, i, j); // swap
+		}
+
+		exch(a, lo, j); // swap with partitioning item
+		return j; // return index of item now known to be in place
+	}
+
+	public void sort(int[] a) {
+		StdRandom.shuffle(a); // shuffle needed for performance guarantee
+		sort(a, 0, a.length -1);
+	}
+
+	private void sort(int[] a, int lo, int hi) {
+		if (hi - lo < SortingNetwork.BASE_CASE_SIZE) {
+			SortingNetwork.sort(a, lo, hi);
+			return;
+		}
+		if (METRICS) enter();
 		int j = partition(a, lo, hi);
 		sort(a, lo, j-1);
 		sort(a, j+1, hi);
+		if (METRICS) exit();
 	}
-}
 
+	static int partition(long[] a, int lo, int hi) {
+		int i = lo, j = hi+1;
+		long v = a[lo];
+
+		while (true) {
+			// find item on left to swap
+			while (less(a[++i], v)) if (i == hi) break;
+
+			// find item on right to swap
+			while (less(v, a[--j])) if (j == lo) break;
 
+			if (i >= j) break; // check if pointers cross
+			exch(a, i, j); // swap
+		}
+
+		exch(a, lo, j); // swap with partitioning item
+		return j; // return index of item now known to be in place
+	}
+
+	public void sort(long[] a) {
+		StdRandom.shuffle(a); // shuffle needed for performance guarantee
+		sort(a, 0, a.length -1);
+	}
+
+	private void sort(long[] a, int lo, int hi) {
+		if (hi - lo < SortingNetwork.BASE_CASE_SIZE) {
+			SortingNetwork.sort(a, lo, hi);
+			return;
+		}
+		if (METRICS) enter();
+		int j = partition(a, lo, hi);
+		sort(a, lo, j-1);
+		sort(a, j+1, hi);
+		if (METRICS) exit();
+	}
+
+	static int partition(double[] a, int lo, int hi) {
+		int i = lo, j = hi+1;
+		double v = a[lo];
+
+		while (true) {
+			// find item on left to swap
+			while (less(a[++i], v)) if (i == hi) break;
+
+			// find item on right to swap
+			while (less(v, a[--j])) if (j == lo) break;
+
+			if (i >= j) break; // check if pointers cross
+			exch(a, i, j); // swap
+		}
+
+		exch(a, lo, j); // swap with partitioning item
+		return j; // return index of item now known to be in place
+	}
+
+	public void sort(double[] a) {
+		StdRandom.shuffle(a); // shuffle needed for performance guarantee
+		sort(a, 0, a.length -1);
+	}
+
+	private void sort(double[] a, int lo, int hi) {
+		if (hi - lo < SortingNetwork.BASE_CASE_SIZE) {
+			// not SortingNetwork: its double network branches on NaN and -0.0 and is no faster
+			InsertionSort.sort(a, lo, hi);
+			return;
+		}
+		if (METRICS) enter();
+		int j = partition(a, lo, hi);
+		sort(a, lo, j-1);
+		sort(a, j+1, hi);
+		if (METRICS) exit();
+	}
+}
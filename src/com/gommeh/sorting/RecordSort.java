@@ -0,0 +1,226 @@
+package com.gommeh.sorting;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Sorts fixed-width binary records in place inside a ByteBuffer, usually a
+ * direct one, so they never have to be turned into objects on the heap.
+ * Each record is recordSize bytes, and records are ordered by the key
+ * slice keyLength bytes long at keyOffset within the record. Keys compare
+ * as unsigned big-endian numbers, i.e. byte by byte, which is how
+ * memcmp() and most binary formats order them. Key bytes are read eight
+ * at a time.
+ * <p>
+ * Three engines, each a port of the one on objects:
+ * QUICKSORT = Hoare partitioning around a random pivot, in place, not stable
+ * MERGESORT = bottom-up merge sort with insertion sorted initial runs; stable,
+ *             needs an off-heap aux buffer as big as the input
+ * RADIX = LSD radix sort on the key bytes, one pass per key byte; stable,
+ *         same aux buffer, no compares at all
+ */
+public class RecordSort {
+
+	public enum Engine { QUICKSORT, MERGESORT, RADIX }
+
+	// ranges of at most this many records more than one are insertion sorted
+	private static final int INSERTION_SORT_CUTOFF = 12;
+
+	// how long the insertion sorted runs are that MERGESORT starts from
+	private static final int INITIAL_RUN = 16;
+
+	private static final int R = 256;
+
+	private final int recordSize, keyOffset, keyLength;
+	private final Engine engine;
+
+	/**
+	 * sorts with QUICKSORT
+	 */
+	public RecordSort(int recordSize, int keyOffset, int keyLength) {
+		this(recordSize, keyOffset, keyLength, Engine.QUICKSORT);
+	}
+
+	/**
+	 * @param recordSize = how many bytes each record takes
+	 * @param keyOffset = where the key starts within a record
+	 * @param keyLength = how many bytes the key has
+	 * @param engine = the algorithm to sort with
+	 */
+	public RecordSort(int recordSize, int keyOffset, int keyLength, Engine engine) {
+		if (recordSize < 1) throw new IllegalArgumentException("recordSize must be positive: " + recordSize);
+		if (keyOffset < 0 || keyLength < 1 || keyOffset + keyLength > recordSize)
+			throw new IllegalArgumentException("key [" + keyOffset + ", " + (keyOffset + keyLength) + ") isn't inside a record of " + recordSize + " bytes");
+		if (engine == null) throw new IllegalArgumentException("engine must not be null");
+		this.recordSize = recordSize;
+		this.keyOffset = keyOffset;
+		this.keyLength = keyLength;
+		this.engine = engine;
+	}
+
+	/**
+	 * sorts the records between the buffer's position and its limit. The
+	 * position, limit and byte order of the buffer are left as they were.
+	 * @param buffer = the records
+	 * @throws IllegalArgumentException if the remaining bytes aren't a whole number of records
+	 */
+	public void sort(ByteBuffer buffer) {
+		int bytes = buffer.remaining();
+		if (bytes % recordSize != 0)
+			throw new IllegalArgumentException(bytes + " bytes isn't a whole number of " + recordSize + "-byte records");
+		int n = bytes / recordSize;
+		// absolute reads and writes on a big-endian view of the same memory
+		ByteBuffer b = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+		int base = buffer.position();
+		if (n <= INSERTION_SORT_CUTOFF + 1) {
+			insertionSort(b, base, 0, n - 1, new byte[recordSize], new byte[recordSize]);
+			return;
+		}
+		switch (engine) {
+		case MERGESORT: mergeSort(b, base, n); break;
+		case RADIX:     radixSort(b, base, n); break;
+		default:        quicksort(b, base, 0, n - 1, new byte[recordSize], new byte[recordSize]);
+		}
+	}
+
+	/**
+	 * compares the key of the record starting at byte i of x with the key
+	 * of the record starting at byte j of y
+	 * @return a negative number, zero or a positive number as the first key
+	 *         is less than, equal to or greater than the second
+	 */
+	private int compare(ByteBuffer x, int i, ByteBuffer y, int j) {
+		if (SortingAlgorithm.METRICS) SortingAlgorithm.countCompare();
+		i += keyOffset;
+		j += keyOffset;
+		int k = 0;
+		for (; k + 8 <= keyLength; k += 8) {
+			long u = x.getLong(i + k), v = y.getLong(j + k);
+			if (u != v) return Long.compareUnsigned(u, v);
+		}
+		for (; k < keyLength; k++) {
+			int u = x.get(i + k) & 0xff, v = y.get(j + k) & 0xff;
+			if (u != v) return u - v;
+		}
+		return 0;
+	}
+
+	// swaps records i and j, using t and u as scratch
+	private void exch(ByteBuffer b, int base, int i, int j, byte[] t, byte[] u) {
+		if (SortingAlgorithm.METRICS) SortingAlgorithm.countExchange();
+		int p = base + i * recordSize, q = base + j * recordSize;
+		b.get(p, t);
+		b.get(q, u);
+		b.put(p, u);
+		b.put(q, t);
+	}
+
+	private void insertionSort(ByteBuffer b, int base, int lo, int hi, byte[] t, byte[] u) {
+		int rs = recordSize;
+		for (int i = lo + 1; i <= hi; i++)
+			for (int j = i; j > lo && compare(b, base + j * rs, b, base + (j-1) * rs) < 0; j--)
+				exch(b, base, j, j-1, t, u);
+	}
+
+	/**
+	 * sorts records lo..hi. Recurses into the smaller side of each
+	 * partition and loops on the larger one, so the stack stays O(log N)
+	 */
+	private void quicksort(ByteBuffer b, int base, int lo, int hi, byte[] t, byte[] u) {
+		while (hi > lo + INSERTION_SORT_CUTOFF) {
+			if (SortingAlgorithm.METRICS) SortingAlgorithm.enter();
+			// a random pivot gives the same guarantee as shuffling every record first, for far fewer moves
+			exch(b, base, lo, lo + StdRandom.uniform(hi - lo + 1), t, u);
+			int j = partition(b, base, lo, hi, t, u);
+			if (j - lo < hi - j) {
+				quicksort(b, base, lo, j-1, t, u);
+				lo = j+1;
+			}
+			else {
+				quicksort(b, base, j+1, hi, t, u);
+				hi = j-1;
+			}
+			if (SortingAlgorithm.METRICS) SortingAlgorithm.exit();
+		}
+		insertionSort(b, base, lo, hi, t, u);
+	}
+
+	private int partition(ByteBuffer b, int base, int lo, int hi, byte[] t, byte[] u) {
+		int rs = recordSize;
+		int i = lo, j = hi+1;
+		int v = base + lo * rs; // the pivot stays at lo until the end
+
+		while (true) {
+			while (compare(b, base + (++i) * rs, b, v) < 0)
+				if (i == hi) break;
+			while (compare(b, v, b, base + (--j) * rs) < 0)
+				if (j == lo) break;
+			if (i >= j) break;
+			exch(b, base, i, j, t, u);
+		}
+		exch(b, base, lo, j, t, u);
+		return j;
+	}
+
+	private void mergeSort(ByteBuffer b, int base, int n) {
+		byte[] t = new byte[recordSize], u = new byte[recordSize];
+		for (int lo = 0; lo < n; lo += INITIAL_RUN)
+			insertionSort(b, base, lo, Math.min(lo + INITIAL_RUN, n) - 1, t, u);
+
+		ByteBuffer aux = ByteBuffer.allocateDirect(n * recordSize);
+		ByteBuffer src = b, dst = aux;
+		int srcBase = base, dstBase = 0;
+		for (int width = INITIAL_RUN; width < n; width *= 2) {
+			for (int lo = 0; lo < n; lo += 2*width)
+				merge(src, srcBase, dst, dstBase, lo, Math.min(lo + width, n), Math.min(lo + 2*width, n));
+			ByteBuffer s = src; src = dst; dst = s;
+			int sb = srcBase; srcBase = dstBase; dstBase = sb;
+		}
+		if (src != b) b.put(base, src, 0, n * recordSize);
+	}
+
+	// merges records [lo, mid) and [mid, hi) of src into the same positions of dst
+	private void merge(ByteBuffer src, int srcBase, ByteBuffer dst, int dstBase, int lo, int mid, int hi) {
+		int rs = recordSize;
+		if (SortingAlgorithm.METRICS) SortingAlgorithm.countWrites(hi - lo);
+		// skip the merge if the halves are already in order
+		if (mid == hi || compare(src, srcBase + (mid-1) * rs, src, srcBase + mid * rs) <= 0) {
+			dst.put(dstBase + lo * rs, src, srcBase + lo * rs, (hi - lo) * rs);
+			return;
+		}
+		int i = lo, j = mid, k = lo;
+		while (i < mid && j < hi) {
+			if (compare(src, srcBase + j * rs, src, srcBase + i * rs) < 0)
+				dst.put(dstBase + (k++) * rs, src, srcBase + (j++) * rs, rs);
+			else
+				dst.put(dstBase + (k++) * rs, src, srcBase + (i++) * rs, rs);
+		}
+		if (i < mid) dst.put(dstBase + k * rs, src, srcBase + i * rs, (mid - i) * rs);
+		else         dst.put(dstBase + k * rs, src, srcBase + j * rs, (hi - j) * rs);
+	}
+
+	private void radixSort(ByteBuffer b, int base, int n) {
+		int rs = recordSize;
+		ByteBuffer aux = ByteBuffer.allocateDirect(n * rs);
+		ByteBuffer src = b, dst = aux;
+		int srcBase = base, dstBase = 0;
+
+		for (int d = keyLength - 1; d >= 0; d--) {
+			int at = keyOffset + d;
+			int[] count = new int[R+1];
+			for (int i = 0; i < n; i++)
+				count[(src.get(srcBase + i * rs + at) & 0xff) + 1]++;
+			if (LSDRadixSort.skip(count, n)) continue;
+			for (int r = 0; r < R; r++)
+				count[r+1] += count[r];
+			for (int i = 0; i < n; i++) {
+				int c = src.get(srcBase + i * rs + at) & 0xff;
+				dst.put(dstBase + (count[c]++) * rs, src, srcBase + i * rs, rs);
+			}
+			if (SortingAlgorithm.METRICS) SortingAlgorithm.countWrites(n);
+			ByteBuffer s = src; src = dst; dst = s;
+			int sb = srcBase; srcBase = dstBase; dstBase = sb;
+		}
+		if (src != b) b.put(base, src, 0, n * rs);
+	}
+}
@@ -0,0 +1,176 @@
+package com.gommeh.sorting;
+
+import java.util.Comparator;
+
+/**
+ * Stable merge sort whose extra memory doesn't grow with N, instead of
+ * MergeSort's aux array as large as the input.
+ * <p>
+ * Blocks of BLOCK items are insertion sorted, then merged bottom-up. A
+ * merge whose shorter run fits in a cache of CACHE_SIZE items is an
+ * ordinary linear merge through the cache. A larger merge is split in
+ * place: the middle item of the longer run is binary searched in the
+ * shorter one, the two middle pieces swap places with a rotation, and
+ * each half is merged on its own, until the pieces fit in the cache. The
+ * cache also serves the rotations whose shorter side fits in it. The split
+ * keeps equal items in order, so the sort is stable.
+ * <p>
+ * Each split costs one binary search, so a sort takes O(N log N) compares,
+ * but the rotations move every item O(log N) times per merge level: O(N
+ * log^2 N) moves in the worst case, against MergeSort's O(N log N). The
+ * extra memory is the cache, an array of min(CACHE_SIZE, N/2) references
+ * allocated once per sort, plus O(log N) stack, since the splitting
+ * recurses into the smaller half only.
+ * <p>
+ * This is not WikiSort or GrailSort: those build their buffer out of the
+ * input's own items and merge block by block in O(N log N) moves, at the
+ * cost of a much more intricate merge.
+ */
+public class RotationMergeSort extends SortingAlgorithm {
+
+	// how long the insertion sorted blocks are that the merging starts from
+	private static final int BLOCK = 16;
+
+	// merges whose shorter run has at most this many items go through the cache
+	static final int CACHE_SIZE = 512;
+
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	public void sort(Comparable[] a) {
+		sort(a, 0, a.length, Comparator.naturalOrder());
+	}
+
+	public <T> void sort(T[] a, int from, int to, Comparator<? super T> c) {
+		checkRange(a.length, from, to);
+		if (to - from < 2) return;
+		for (int lo = from; lo < to; lo += BLOCK)
+			InsertionSort.sortRange(a, lo, Math.min(lo + BLOCK, to) - 1, c);
+
+		Object[] cache = new Object[Math.min(CACHE_SIZE, (to - from) / 2)];
+		for (int width = BLOCK; width < to - from; width *= 2)
+			for (int lo = from; lo < to - width; lo += 2*width)
+				merge(a, lo, lo + width, Math.min(lo + 2*width, to), cache, c);
+	}
+
+	/**
+	 * merges the sorted runs a[lo..mid-1] and a[mid..hi-1] in place
+	 */
+	private static <T> void merge(T[] a, int lo, int mid, int hi, Object[] cache, Comparator<? super T> c) {
+		while (lo < mid && mid < hi) {
+			// skip the merge if the runs are already in order
+			if (!less(c, a[mid], a[mid-1])) return;
+			if (mid - lo <= cache.length) {
+				mergeLeftCached(a, lo, mid, hi, cache, c);
+				return;
+			}
+			if (hi - mid <= cache.length) {
+				mergeRightCached(a, lo, mid, hi, cache, c);
+				return;
+			}
+			if (METRICS) enter();
+
+			// cut both runs so that everything in a[lo..cut1-1] and a[mid..cut2-1]
+			// belongs before everything in a[cut1..mid-1] and a[cut2..hi-1]
+			int cut1, cut2;
+			if (mid - lo >= hi - mid) {
+				cut1 = lo + (mid - lo) / 2;
+				cut2 = lowerBound(a, mid, hi, a[cut1], c);
+			}
+			else {
+				cut2 = mid + (hi - mid) / 2;
+				cut1 = upperBound(a, lo, mid, a[cut2], c);
+			}
+			rotate(a, cut1, mid, cut2, cache);
+			int newMid = cut1 + (cut2 - mid);
+
+			// recurse into the smaller half and loop on the larger one
+			if (newMid - lo < hi - newMid) {
+				merge(a, lo, cut1, newMid, cache, c);
+				lo = newMid;
+				mid = cut2;
+			}
+			else {
+				merge(a, newMid, cut2, hi, cache, c);
+				hi = newMid;
+				mid = cut1;
+			}
+			if (METRICS) exit();
+		}
+	}
+
+	// merge with the left run copied into the cache, filling a from the front
+	@SuppressWarnings("unchecked")
+	private static <T> void mergeLeftCached(T[] a, int lo, int mid, int hi, Object[] cache, Comparator<? super T> c) {
+		int n = mid - lo;
+		System.arraycopy(a, lo, cache, 0, n);
+		int i = 0, j = mid, k = lo;
+		while (i < n && j < hi) {
+			if (less(c, a[j], (T) cache[i])) a[k++] = a[j++];
+			else a[k++] = (T) cache[i++];
+		}
+		System.arraycopy(cache, i, a, k, n - i);
+		if (METRICS) countWrites(n + (hi - lo));
+	}
+
+	// merge with the right run copied into the cache, filling a from the back
+	@SuppressWarnings("unchecked")
+	private static <T> void mergeRightCached(T[] a, int lo, int mid, int hi, Object[] cache, Comparator<? super T> c) {
+		int n = hi - mid;
+		System.arraycopy(a, mid, cache, 0, n);
+		int i = mid - 1, j = n - 1, k = hi - 1;
+		while (i >= lo && j >= 0) {
+			if (less(c, (T) cache[j], a[i])) a[k--] = a[i--];
+			else a[k--] = (T) cache[j--];
+		}
+		System.arraycopy(cache, 0, a, lo, j + 1);
+		if (METRICS) countWrites(n + (hi - lo));
+	}
+
+	/**
+	 * swaps the adjacent ranges a[lo..mid-1] and a[mid..hi-1], through the
+	 * cache if the shorter one fits and otherwise by reversing each of them
+	 * and then the whole
+	 */
+	private static void rotate(Object[] a, int lo, int mid, int hi, Object[] cache) {
+		if (lo == mid || mid == hi) return;
+		if (METRICS && Math.min(mid - lo, hi - mid) <= cache.length) countWrites(hi - lo + Math.min(mid - lo, hi - mid));
+		if (mid - lo <= cache.length) {
+			System.arraycopy(a, lo, cache, 0, mid - lo);
+			System.arraycopy(a, mid, a, lo, hi - mid);
+			System.arraycopy(cache, 0, a, lo + (hi - mid), mid - lo);
+			return;
+		}
+		if (hi - mid <= cache.length) {
+			System.arraycopy(a, mid, cache, 0, hi - mid);
+			System.arraycopy(a, lo, a, lo + (hi - mid), mid - lo);
+			System.arraycopy(cache, 0, a, lo, hi - mid);
+			return;
+		}
+		reverse(a, lo, mid - 1);
+		reverse(a, mid, hi - 1);
+		reverse(a, lo, hi - 1);
+	}
+
+	private static void reverse(Object[] a, int i, int j) {
+		while (i < j) exch(a, i++, j--);
+	}
+
+	// the first index in a[lo..hi-1] whose item isn't less than key
+	private static <T> int lowerBound(T[] a, int lo, int hi, T key, Comparator<? super T> c) {
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (less(c, a[mid], key)) lo = mid + 1;
+			else hi = mid;
+		}
+		return lo;
+	}
+
+	// the first index in a[lo..hi-1] whose item is greater than key
+	private static <T> int upperBound(T[] a, int lo, int hi, T key, Comparator<? super T> c) {
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (less(c, key, a[mid])) hi = mid;
+			else lo = mid + 1;
+		}
+		return lo;
+	}
+}
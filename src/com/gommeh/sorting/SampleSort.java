@@ -0,0 +1,404 @@
+package com.gommeh.sorting;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Parallel sample sort. Instead of splitting the array in two at a time,
+ * like the fork/join merge sort and quicksort do, it splits it into a few
+ * buckets per thread in a single parallel pass:
+ * <ol>
+ * <li>draw OVERSAMPLING random keys per bucket with StdRandom, sort them
+ *     and take every OVERSAMPLING-th as a splitter</li>
+ * <li>each block of the array counts, in parallel, how many of its keys
+ *     fall into each bucket (binary search over the splitters)</li>
+ * <li>prefix sums over those counts give every block its own slice of each
+ *     bucket, so the blocks scatter their keys in parallel without locking</li>
+ * <li>the buckets are sorted concurrently by the sequential engine</li>
+ * </ol>
+ * Keys equal to a splitter get a bucket of their own that never needs
+ * sorting, so heavily duplicated keys can't pile up in one bucket. The
+ * scatter keeps equal keys in order, so the result is stable whenever the
+ * engine is; the default engine, MergeSort, is.
+ * <p>
+ * int[], long[] and double[] go through the same four steps. Since the
+ * engines' primitive sorts take whole arrays, each bucket is copied out of
+ * the scatter buffer, sorted by the engine and copied into place.
+ */
+public class SampleSort extends SortingAlgorithm {
+
+	// arrays smaller than this are handed straight to the engine
+	public static final int DEFAULT_CUTOFF = 1 << 13;
+
+	// how many sampled keys stand behind each splitter
+	private static final int OVERSAMPLING = 32;
+
+	// more buckets than threads, so a thread that finishes early can steal another one
+	private static final int BUCKETS_PER_THREAD = 4;
+
+	private final SortingAlgorithm engine;
+	private final ForkJoinPool pool;
+	private final int cutoff;
+
+	/**
+	 * sorts the buckets with MergeSort on the common pool
+	 */
+	public SampleSort() {
+		this(new MergeSort(), ForkJoinPool.commonPool(), DEFAULT_CUTOFF);
+	}
+
+	/**
+	 * @param engine = the sequential algorithm that sorts each bucket
+	 * @param pool = the pool to run the tasks on
+	 * @param cutoff = arrays smaller than this are sorted by the engine alone
+	 */
+	public SampleSort(SortingAlgorithm engine, ForkJoinPool pool, int cutoff) {
+		if (engine == null) throw new IllegalArgumentException("engine must not be null");
+		if (pool == null) throw new IllegalArgumentException("pool must not be null");
+		if (cutoff < 1) throw new IllegalArgumentException("cutoff must be positive: " + cutoff);
+		this.engine = engine;
+		this.pool = pool;
+		this.cutoff = cutoff;
+	}
+
+	@SuppressWarnings({"rawtypes", "unchecked"})
+	public void sort(Comparable[] a) {
+		sort(a, 0, a.length, Comparator.naturalOrder());
+	}
+
+	public <T> void sort(T[] a, int from, int to, Comparator<? super T> c) {
+		checkRange(a.length, from, to);
+		int n = to - from;
+		int threads = pool.getParallelism();
+		if (n < cutoff || threads == 1) {
+			engine.sort(a, from, to, c);
+			return;
+		}
+		if (METRICS) enter();
+
+		T[] splitters = splitters(a, from, to, BUCKETS_PER_THREAD * threads, c);
+		// bucket 2i holds the keys between splitters i-1 and i, bucket 2i+1 the keys equal to splitter i
+		int buckets = 2 * splitters.length + 1;
+		int blocks = BUCKETS_PER_THREAD * threads;
+		int blockSize = (n + blocks - 1) / blocks;
+
+		int[] label = new int[n];
+		int[][] count = new int[blocks][buckets];
+		Quicksort.forEach(pool, blocks, b -> {
+			for (int i = b * blockSize, end = Math.min(n, i + blockSize); i < end; i++) {
+				label[i] = classify(a[from + i], splitters, c);
+				count[b][label[i]]++;
+			}
+		});
+
+		int[][] offset = new int[blocks][buckets];
+		int[] start = offsets(count, offset, n);
+
+		Object[] aux = new Object[n];
+		Quicksort.forEach(pool, blocks, b -> {
+			int[] next = offset[b];
+			for (int i = b * blockSize, end = Math.min(n, i + blockSize); i < end; i++)
+				aux[next[label[i]]++] = a[from + i];
+		});
+		if (METRICS) countWrites(n);
+
+		Quicksort.forEach(pool, buckets, k -> {
+			int lo = start[k], hi = start[k+1];
+			System.arraycopy(aux, lo, a, from + lo, hi - lo);
+			if (METRICS) countWrites(hi - lo);
+			if (k % 2 == 0 && hi - lo > 1) engine.sort(a, from + lo, from + hi, c);
+		});
+		if (METRICS) exit();
+	}
+
+	/**
+	 * @throws UnsupportedOperationException if the engine can't sort a int[]
+	 */
+	public void sort(int[] a) {
+		int n = a.length;
+		int threads = pool.getParallelism();
+		if (n < cutoff || threads == 1) {
+			engine.sort(a);
+			return;
+		}
+		if (METRICS) enter();
+
+		int[] splitters = splitters(a, BUCKETS_PER_THREAD * threads);
+		int buckets = 2 * splitters.length + 1;
+		int blocks = BUCKETS_PER_THREAD * threads;
+		int blockSize = (n + blocks - 1) / blocks;
+
+		int[] label = new int[n];
+		int[][] count = new int[blocks][buckets];
+		Quicksort.forEach(pool, blocks, b -> {
+			for (int i = b * blockSize, end = Math.min(n, i + blockSize); i < end; i++) {
+				label[i] = classify(a[i], splitters);
+				count[b][label[i]]++;
+			}
+		});
+		int[][] offset = new int[blocks][buckets];
+		int[] start = offsets(count, offset, n);
+
+		int[] aux = new int[n];
+		Quicksort.forEach(pool, blocks, b -> {
+			int[] next = offset[b];
+			for (int i = b * blockSize, end = Math.min(n, i + blockSize); i < end; i++)
+				aux[next[label[i]]++] = a[i];
+		});
+		if (METRICS) countWrites(n);
+
+		Quicksort.forEach(pool, buckets, k -> {
+			int lo = start[k], hi = start[k+1];
+			if (k % 2 == 0 && hi - lo > 1) {
+				int[] bucket = Arrays.copyOfRange(aux, lo, hi);
+				engine.sort(bucket);
+				System.arraycopy(bucket, 0, a, lo, hi - lo);
+				if (METRICS) countWrites(2 * (hi - lo));
+			}
+			else {
+				System.arraycopy(aux, lo, a, lo, hi - lo);
+				if (METRICS) countWrites(hi - lo);
+			}
+		});
+		if (METRICS) exit();
+	}
+
+	/**
+	 * @throws UnsupportedOperationException if the engine can't sort a long[]
+	 */
+	public void sort(long[] a) {
+		int n = a.length;
+		int threads = pool.getParallelism();
+		if (n < cutoff || threads == 1) {
+			engine.sort(a);
+			return;
+		}
+		if (METRICS) enter();
+
+		long[] splitters = splitters(a, BUCKETS_PER_THREAD * threads);
+		int buckets = 2 * splitters.length + 1;
+		int blocks = BUCKETS_PER_THREAD * threads;
+		int blockSize = (n + blocks - 1) / blocks;
+
+		int[] label = new int[n];
+		int[][] count = new int[blocks][buckets];
+		Quicksort.forEach(pool, blocks, b -> {
+			for (int i = b * blockSize, end = Math.min(n, i + blockSize); i < end; i++) {
+				label[i] = classify(a[i], splitters);
+				count[b][label[i]]++;
+			}
+		});
+		int[][] offset = new int[blocks][buckets];
+		int[] start = offsets(count, offset, n);
+
+		long[] aux = new long[n];
+		Quicksort.forEach(pool, blocks, b -> {
+			int[] next = offset[b];
+			for (int i = b * blockSize, end = Math.min(n, i + blockSize); i < end; i++)
+				aux[next[label[i]]++] = a[i];
+		});
+		if (METRICS) countWrites(n);
+
+		Quicksort.forEach(pool, buckets, k -> {
+			int lo = start[k], hi = start[k+1];
+			if (k % 2 == 0 && hi - lo > 1) {
+				long[] bucket = Arrays.copyOfRange(aux, lo, hi);
+				engine.sort(bucket);
+				System.arraycopy(bucket, 0, a, lo, hi - lo);
+				if (METRICS) countWrites(2 * (hi - lo));
+			}
+			else {
+				System.arraycopy(aux, lo, a, lo, hi - lo);
+				if (METRICS) countWrites(hi - lo);
+			}
+		});
+		if (METRICS) exit();
+	}
+
+	/**
+	 * @throws UnsupportedOperationException if the engine can't sort a double[]
+	 */
+	public void sort(double[] a) {
+		int n = a.length;
+		int threads = pool.getParallelism();
+		if (n < cutoff || threads == 1) {
+			engine.sort(a);
+			return;
+		}
+		if (METRICS) enter();
+
+		double[] splitters = splitters(a, BUCKETS_PER_THREAD * threads);
+		int buckets = 2 * splitters.length + 1;
+		int blocks = BUCKETS_PER_THREAD * threads;
+		int blockSize = (n + blocks - 1) / blocks;
+
+		int[] label = new int[n];
+		int[][] count = new int[blocks][buckets];
+		Quicksort.forEach(pool, blocks, b -> {
+			for (int i = b * blockSize, end = Math.min(n, i + blockSize); i < end; i++) {
+				label[i] = classify(a[i], splitters);
+				count[b][label[i]]++;
+			}
+		});
+		int[][] offset = new int[blocks][buckets];
+		int[] start = offsets(count, offset, n);
+
+		double[] aux = new double[n];
+		Quicksort.forEach(pool, blocks, b -> {
+			int[] next = offset[b];
+			for (int i = b * blockSize, end = Math.min(n, i + blockSize); i < end; i++)
+				aux[next[label[i]]++] = a[i];
+		});
+		if (METRICS) countWrites(n);
+
+		Quicksort.forEach(pool, buckets, k -> {
+			int lo = start[k], hi = start[k+1];
+			if (k % 2 == 0 && hi - lo > 1) {
+				double[] bucket = Arrays.copyOfRange(aux, lo, hi);
+				engine.sort(bucket);
+				System.arraycopy(bucket, 0, a, lo, hi - lo);
+				if (METRICS) countWrites(2 * (hi - lo));
+			}
+			else {
+				System.arraycopy(aux, lo, a, lo, hi - lo);
+				if (METRICS) countWrites(hi - lo);
+			}
+		});
+		if (METRICS) exit();
+	}
+
+	/**
+	 * prefix sums over the per-block bucket counts
+	 * @param count = count[b][k] is how many keys of block b go in bucket k
+	 * @param offset = filled in so that offset[b][k] is where block b writes its first key of bucket k
+	 * @param n = the number of keys
+	 * @return where each bucket starts, followed by n
+	 */
+	private static int[] offsets(int[][] count, int[][] offset, int n) {
+		int buckets = offset[0].length;
+		int[] start = new int[buckets + 1];
+		int sum = 0;
+		for (int k = 0; k < buckets; k++) {
+			start[k] = sum;
+			for (int b = 0; b < count.length; b++) {
+				offset[b][k] = sum;
+				sum += count[b][k];
+			}
+		}
+		start[buckets] = n;
+		return start;
+	}
+
+	/**
+	 * draws (buckets * OVERSAMPLING) random keys from a[from..to-1], sorts
+	 * them and keeps every OVERSAMPLING-th one, without repeats
+	 * @return at most buckets-1 splitters in strictly increasing order
+	 */
+	private <T> T[] splitters(T[] a, int from, int to, int buckets, Comparator<? super T> c) {
+		Object[] s = new Object[buckets * OVERSAMPLING];
+		for (int i = 0; i < s.length; i++) s[i] = a[from + StdRandom.uniform(to - from)];
+		@SuppressWarnings("unchecked")
+		T[] sample = (T[]) s;
+		engine.sort(sample, 0, sample.length, c);
+
+		T[] splitters = Arrays.copyOf(sample, buckets - 1);
+		int m = 0;
+		for (int i = 1; i < buckets; i++) {
+			T v = sample[i * OVERSAMPLING - 1];
+			if (m == 0 || less(c, splitters[m-1], v)) splitters[m++] = v;
+		}
+		return Arrays.copyOf(splitters, m);
+	}
+
+	/**
+	 * @return the bucket that v belongs in: 2i if it's less than splitter i
+	 *         (and greater than splitter i-1), 2i+1 if it's equal to splitter i
+	 */
+	private static <T> int classify(T v, T[] splitters, Comparator<? super T> c) {
+		int lo = 0, hi = splitters.length; // the first splitter >= v is in splitters[lo..hi]
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (less(c, splitters[mid], v)) lo = mid + 1;
+			else hi = mid;
+		}
+		if (lo < splitters.length && !less(c, v, splitters[lo])) return 2 * lo + 1;
+		return 2 * lo;
+	}
+
+	// splitters() and classify() for the primitive sorts
+	private int[] splitters(int[] a, int buckets) {
+		int[] sample = new int[buckets * OVERSAMPLING];
+		for (int i = 0; i < sample.length; i++) sample[i] = a[StdRandom.uniform(a.length)];
+		engine.sort(sample);
+
+		int[] splitters = new int[buckets - 1];
+		int m = 0;
+		for (int i = 1; i < buckets; i++) {
+			int v = sample[i * OVERSAMPLING - 1];
+			if (m == 0 || less(splitters[m-1], v)) splitters[m++] = v;
+		}
+		return Arrays.copyOf(splitters, m);
+	}
+
+	private static int classify(int v, int[] splitters) {
+		int lo = 0, hi = splitters.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (less(splitters[mid], v)) lo = mid + 1;
+			else hi = mid;
+		}
+		if (lo < splitters.length && !less(v, splitters[lo])) return 2 * lo + 1;
+		return 2 * lo;
+	}
+
+	private long[] splitters(long[] a, int buckets) {
+		long[] sample = new long[buckets * OVERSAMPLING];
+		for (int i = 0; i < sample.length; i++) sample[i] = a[StdRandom.uniform(a.length)];
+		engine.sort(sample);
+
+		long[] splitters = new long[buckets - 1];
+		int m = 0;
+		for (int i = 1; i < buckets; i++) {
+			long v = sample[i * OVERSAMPLING - 1];
+			if (m == 0 || less(splitters[m-1], v)) splitters[m++] = v;
+		}
+		return Arrays.copyOf(splitters, m);
+	}
+
+	private static int classify(long v, long[] splitters) {
+		int lo = 0, hi = splitters.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (less(splitters[mid], v)) lo = mid + 1;
+			else hi = mid;
+		}
+		if (lo < splitters.length && !less(v, splitters[lo])) return 2 * lo + 1;
+		return 2 * lo;
+	}
+
+	private double[] splitters(double[] a, int buckets) {
+		double[] sample = new double[buckets * OVERSAMPLING];
+		for (int i = 0; i < sample.length; i++) sample[i] = a[StdRandom.uniform(a.length)];
+		engine.sort(sample);
+
+		double[] splitters = new double[buckets - 1];
+		int m = 0;
+		for (int i = 1; i < buckets; i++) {
+			double v = sample[i * OVERSAMPLING - 1];
+			if (m == 0 || less(splitters[m-1], v)) splitters[m++] = v;
+		}
+		return Arrays.copyOf(splitters, m);
+	}
+
+	private static int classify(double v, double[] splitters) {
+		int lo = 0, hi = splitters.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (less(splitters[mid], v)) lo = mid + 1;
+			else hi = mid;
+		}
+		if (lo < splitters.length && !less(v, splitters[lo])) return 2 * lo + 1;
+		return 2 * lo;
+	}
+}
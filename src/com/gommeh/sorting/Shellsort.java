@@ -1,23 +1,228 @@
 package com.gommeh.sorting;
 
-class Shellsort extends SortingAlgorithm {
+import java.util.Arrays;
+import java.util.Comparator;
+
+public class Shellsort extends SortingAlgorithm {
+
+	/**
+	 * the increments to h-sort with, largest first and ending in 1
+	 */
+	public interface GapSequence {
+		int[] gaps(int n);
+	}
+
+	/**
+	 * KNUTH = 1, 4, 13, 40, ... (3x+1), the original sequence
+	 * CIURA = 1, 4, 10, 23, 57, 132, 301, 701, then x2.25, best known on average
+	 * SEDGEWICK = 1, 5, 19, 41, 109, 209, ... (Sedgewick 1986), O(N^4/3) worst case
+	 * TOKUDA = 1, 4, 9, 20, 46, 103, ... (ceil((9 (9/4)^k - 4) / 5))
+	 * PRATT = every 2^p 3^q, O(N log^2 N) worst case but many passes
+	 */
+	public enum StandardGaps implements GapSequence {
+		KNUTH {
+			int[] generate(int n) {
+				int[] g = new int[32];
+				int k = 0;
+				int h = 1;
+				g[k++] = h;
+				while (h < n/3) g[k++] = h = 3*h+1;
+				return descending(g, k);
+			}
+
+			// 3h+1 is added while h < n/3
+			boolean fits(int h, int n) {
+				return h == 1 || (h - 1) / 3 < n / 3;
+			}
+		},
+		CIURA {
+			int[] generate(int n) {
+				int[] known = { 1, 4, 10, 23, 57, 132, 301, 701 };
+				int[] g = new int[64];
+				int k = 0;
+				for (int h : known) if (k == 0 || h < n) g[k++] = h;
+				if (k == known.length) {
+					long h = known[known.length - 1];
+					while ((h = (long) (2.25 * h)) < n) g[k++] = (int) h;
+				}
+				return descending(g, k);
+			}
+		},
+		SEDGEWICK {
+			int[] generate(int n) {
+				int[] g = new int[64];
+				int k = 0;
+				g[k++] = 1;
+				for (int i = 1; ; i++) {
+					long h = (i % 2 == 0)
+							? 9L * ((1L << (2*(i/2))) - (1L << (i/2))) + 1               // 9 (4^j - 2^j) + 1
+							: (1L << (2*((i+3)/2))) - 6L * (1L << ((i+1)/2)) + 1;       // 4^(j+2) - 6 2^(j+1) + 1
+					if (h >= n || h > Integer.MAX_VALUE) break;
+					g[k++] = (int) h;
+				}
+				return descending(g, k);
+			}
+		},
+		TOKUDA {
+			int[] generate(int n) {
+				int[] g = new int[64];
+				int k = 0;
+				g[k++] = 1;
+				for (double x = 9 * 2.25; ; x *= 2.25) {
+					double h = Math.ceil((x - 4) / 5);
+					if (h >= n) break;
+					g[k++] = (int) h;
+				}
+				return descending(g, k);
+			}
+		},
+		PRATT {
+			int[] generate(int n) {
+				int[] g = new int[1024];
+				int k = 0;
+				for (long p = 1; p == 1 || p < n; p *= 2)
+					for (long q = p; q == 1 || q < n; q *= 3)
+						g[k++] = (int) q;
+				Arrays.sort(g, 0, k);
+				return descending(g, k);
+			}
+		};
+
+		// the whole sequence, largest first, built once so that sorting doesn't allocate it every call
+		private final int[] all = generate(Integer.MAX_VALUE);
+
+		// the gaps for n items, largest first; only called once per constant, when all is built
+		abstract int[] generate(int n);
+
+		/**
+		 * whether generate(n) includes gap h; the gaps that fit are always a
+		 * suffix of all, since a sequence stops at its first gap that doesn't
+		 */
+		boolean fits(int h, int n) {
+			return h == 1 || h < n;
+		}
+
+		/**
+		 * @return a copy of the gaps for n items, largest first
+		 */
+		public int[] gaps(int n) {
+			return Arrays.copyOfRange(all, first(n), all.length);
+		}
+
+		/**
+		 * @return the index in all of the largest gap for n items
+		 */
+		int first(int n) {
+			int lo = 0, hi = all.length - 1; // all[hi] == 1 always fits
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (fits(all[mid], n)) hi = mid;
+				else lo = mid + 1;
+			}
+			return lo;
+		}
+
+		// the first k entries of g, which are in ascending order, reversed
+		private static int[] descending(int[] g, int k) {
+			int[] d = new int[k];
+			for (int i = 0; i < k; i++) d[i] = g[k-1-i];
+			return d;
+		}
+	}
+
+	private final GapSequence gaps;
+
+	// gaps itself if it's a StandardGaps, whose cached sequence the sorts walk without copying
+	private final StandardGaps standard;
+
+	public Shellsort() {
+		this(StandardGaps.KNUTH);
+	}
+
+	public Shellsort(GapSequence gaps) {
+		if (gaps == null) throw new IllegalArgumentException("gaps must not be null");
+		this.gaps = gaps;
+		this.standard = gaps instanceof StandardGaps ? (StandardGaps) gaps : null;
+	}
+
+	// the gaps for n items are gaps(n)[first(n)..]
+	private int[] gaps(int n) {
+		return standard != null ? standard.all : gaps.gaps(n);
+	}
+
+	private int first(int n) {
+		return standard != null ? standard.first(n) : 0;
+	}
 
 	public void sort(Comparable[] a) {
-		System.out.println("Shellsorting...");
 		int N = a.length;
-		
-		int h = 1;
-		while (h < N/3) h =3*h+1; // 3x+1 increment sequence
-		
-		while (h >= 1) { // h-sort the array
+
+		int[] g = gaps(N);
+		for (int k = first(N); k < g.length; k++) { // h-sort the array
+			int h = g[k];
+			for (int i = h; i < N; i++) {
+				for (int j = i; j >= h && less(a[j], a[j-h]); j -= h) {
+					exch(a, j, j-h);
+				}
+			}
+		}
+	}
+
+	public <T> void sort(T[] a, int from, int to, Comparator<? super T> c) {
+		checkRange(a.length, from, to);
+		int N = to - from;
+
+		int[] g = gaps(N);
+		for (int k = first(N); k < g.length; k++) { // h-sort the range
+			int h = g[k];
+			for (int i = from + h; i < to; i++) {
+				for (int j = i; j >= from + h && less(c, a[j], a[j-h]); j -= h) {
+					exch(a, j, j-h);
+				}
+			}
+		}
+	}
+
+	public void sort(int[] a) {
+		int N = a.length;
+
+		int[] g = gaps(N);
+		for (int k = first(N); k < g.length; k++) { // h-sort the array
+			int h = g[k];
+			for (int i = h; i < N; i++) {
+				for (int j = i; j >= h && less(a[j], a[j-h]); j -= h) {
+					exch(a, j, j-h);
+				}
+			}
+		}
+	}
+
+	public void sort(long[] a) {
+		int N = a.length;
+
+		int[] g = gaps(N);
+		for (int k = first(N); k < g.length; k++) { // h-sort the array
+			int h = g[k];
+			for (int i = h; i < N; i++) {
+				for (int j = i; j >= h && less(a[j], a[j-h]); j -= h) {
+					exch(a, j, j-h);
+				}
+			}
+		}
+	}
+
+	public void sort(double[] a) {
+		int N = a.length;
+
+		int[] g = gaps(N);
+		for (int k = first(N); k < g.length; k++) { // h-sort the array
+			int h = g[k];
 			for (int i = h; i < N; i++) {
 				for (int j = i; j >= h && less(a[j], a[j-h]); j -= h) {
 					exch(a, j, j-h);
 				}
 			}
-			h = h/3;
 		}
-		System.out.println("Done shellsorting.");
 	}
 	
 }
@@ -0,0 +1,1141 @@
+package com.gommeh.sorting;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Times the sorting algorithms against each other on inputs generated
+ * with StdRandom. Every scenario reports the best of several trials so
+ * that JIT warmup doesn't count against whichever algorithm runs first.
+ *
+ * usage: java com.gommeh.sorting.SortBenchmark [scenario] [N] [trials]
+ *
+ * "suite" runs every algorithm against every input distribution; for it,
+ * N is the largest size and trials the minimum number of measured sorts.
+ * "verify" runs SortVerifier up to size N instead of timing anything, and
+ * every timing scenario checks that what it timed came out sorted.
+ */
+public class SortBenchmark {
+
+	// insertion sort is quadratic, so it only gets this many elements
+	static final int MAX_QUADRATIC_N = 20000;
+
+	/**
+	 * runs the task once and returns how long it took
+	 * @param task = the work to time
+	 * @return the elapsed time in milliseconds
+	 */
+	static double time(Runnable task) {
+		long start = System.nanoTime();
+		task.run();
+		return (System.nanoTime() - start) / 1e6;
+	}
+
+	/**
+	 * throws an IllegalStateException unless a is in order, so that a sort
+	 * that gets it wrong can't report a time; called outside the timed code
+	 * @param what = the sort, for the message
+	 * @param a = the array it sorted
+	 */
+	static void checkSorted(Object what, Comparable<?>[] a) {
+		if (!SortingAlgorithm.isSorted(a)) throw new IllegalStateException(what + " didn't sort");
+	}
+
+	static <T> void checkSorted(Object what, T[] a, Comparator<? super T> c) {
+		for (int i = 1; i < a.length; i++)
+			if (c.compare(a[i], a[i-1]) < 0) throw new IllegalStateException(what + " didn't sort");
+	}
+
+	static void checkSorted(Object what, int[] a) {
+		if (!SortingAlgorithm.isSorted(a)) throw new IllegalStateException(what + " didn't sort");
+	}
+
+	static void checkSorted(Object what, long[] a) {
+		if (!SortingAlgorithm.isSorted(a)) throw new IllegalStateException(what + " didn't sort");
+	}
+
+	static void checkSorted(Object what, double[] a) {
+		if (!SortingAlgorithm.isSorted(a)) throw new IllegalStateException(what + " didn't sort");
+	}
+
+	/**
+	 * times the Comparable[] path of every algorithm against its int[],
+	 * long[] and double[] overloads on the same uniformly random keys
+	 * @param N = the number of keys
+	 * @param trials = how many times to repeat each sort
+	 */
+	static void primitives(int N, int trials) {
+		SortingAlgorithm[] algorithms = { new InsertionSort(), new Shellsort(), new MergeSort(), new Quicksort() };
+		System.out.printf("%-14s %-7s %12s %12s %8s%n", "algorithm", "type", "Comparable", "primitive", "speedup");
+		for (SortingAlgorithm alg : algorithms) {
+			int n = (alg instanceof InsertionSort) ? Math.min(N, MAX_QUADRATIC_N) : N;
+			int[] ints = new int[n];
+			long[] longs = new long[n];
+			double[] doubles = new double[n];
+			for (int i = 0; i < n; i++) {
+				ints[i] = StdRandom.uniform(-1000000000, 1000000000);
+				longs[i] = StdRandom.uniform(Long.MAX_VALUE) - StdRandom.uniform(Long.MAX_VALUE);
+				doubles[i] = StdRandom.gaussian();
+			}
+
+			double boxed = Double.MAX_VALUE, primitive = Double.MAX_VALUE;
+			for (int t = 0; t < trials; t++) {
+				Integer[] a = new Integer[n];
+				for (int i = 0; i < n; i++) a[i] = ints[i];
+				int[] b = ints.clone();
+				boxed = Math.min(boxed, time(() -> alg.sort(a)));
+				primitive = Math.min(primitive, time(() -> alg.sort(b)));
+				checkSorted(alg, a);
+				checkSorted(alg, b);
+			}
+			report(alg, "int", boxed, primitive);
+
+			boxed = Double.MAX_VALUE; primitive = Double.MAX_VALUE;
+			for (int t = 0; t < trials; t++) {
+				Long[] a = new Long[n];
+				for (int i = 0; i < n; i++) a[i] = longs[i];
+				long[] b = longs.clone();
+				boxed = Math.min(boxed, time(() -> alg.sort(a)));
+				primitive = Math.min(primitive, time(() -> alg.sort(b)));
+				checkSorted(alg, a);
+				checkSorted(alg, b);
+			}
+			report(alg, "long", boxed, primitive);
+
+			boxed = Double.MAX_VALUE; primitive = Double.MAX_VALUE;
+			for (int t = 0; t < trials; t++) {
+				Double[] a = new Double[n];
+				for (int i = 0; i < n; i++) a[i] = doubles[i];
+				double[] b = doubles.clone();
+				boxed = Math.min(boxed, time(() -> alg.sort(a)));
+				primitive = Math.min(primitive, time(() -> alg.sort(b)));
+				checkSorted(alg, a);
+				checkSorted(alg, b);
+			}
+			report(alg, "double", boxed, primitive);
+		}
+	}
+
+	/**
+	 * times the sequential MergeSort against parallelSort() at several
+	 * sequential cutoffs
+	 * @param N = the number of keys
+	 * @param trials = how many times to repeat each sort
+	 */
+	static void parallelMerge(int N, int trials) {
+		Integer[] keys = new Integer[N];
+		for (int i = 0; i < N; i++) keys[i] = StdRandom.uniform(N);
+		MergeSort sorter = new MergeSort();
+
+		double sequential = Double.MAX_VALUE;
+		for (int t = 0; t < trials; t++) {
+			Integer[] a = keys.clone();
+			sequential = Math.min(sequential, time(() -> sorter.sort(a)));
+			checkSorted(sorter, a);
+		}
+		System.out.printf("%-22s %9.2f ms%n", "sequential", sequential);
+
+		for (int cutoff = 1 << 10; cutoff <= 1 << 16; cutoff <<= 2) {
+			final int c = cutoff;
+			double parallel = Double.MAX_VALUE;
+			for (int t = 0; t < trials; t++) {
+				Integer[] a = keys.clone();
+				parallel = Math.min(parallel, time(() -> sorter.parallelSort(a, c)));
+				checkSorted(sorter, a);
+			}
+			System.out.printf("%-22s %9.2f ms %7.2fx%n", "parallel cutoff=" + cutoff, parallel, sequential / parallel);
+		}
+	}
+
+	/**
+	 * times Quicksort.parallelSort() on fork/join pools of 1, 2, 4, ... cores
+	 * up to every available processor, against the sequential sort()
+	 * @param N = the number of keys
+	 * @param trials = how many times to repeat each sort
+	 */
+	static void parallelQuick(int N, int trials) {
+		Integer[] keys = new Integer[N];
+		for (int i = 0; i < N; i++) keys[i] = StdRandom.uniform(N);
+		Quicksort sorter = new Quicksort();
+
+		double sequential = Double.MAX_VALUE;
+		for (int t = 0; t < trials; t++) {
+			Integer[] a = keys.clone();
+			sequential = Math.min(sequential, time(() -> sorter.sort(a)));
+			checkSorted(sorter, a);
+		}
+		System.out.printf("%-12s %9.2f ms%n", "sequential", sequential);
+
+		int cores = Runtime.getRuntime().availableProcessors();
+		for (int p = 1; p <= cores; p = (p == cores || 2*p <= cores) ? 2*p : cores) {
+			ForkJoinPool pool = new ForkJoinPool(p);
+			double parallel = Double.MAX_VALUE;
+			for (int t = 0; t < trials; t++) {
+				Integer[] a = keys.clone();
+				parallel = Math.min(parallel, time(() -> sorter.parallelSort(a, Quicksort.DEFAULT_PARALLEL_CUTOFF, pool)));
+				checkSorted(sorter, a);
+			}
+			pool.shutdown();
+			System.out.printf("%-12s %9.2f ms %7.2fx%n", "cores=" + p, parallel, sequential / parallel);
+		}
+	}
+
+	/**
+	 * times each Quicksort.Partitioning on uniform, few-unique and sorted keys
+	 * @param N = the number of keys
+	 * @param trials = how many times to repeat each sort
+	 */
+	static void partitioning(int N, int trials) {
+		Integer[][] inputs = new Integer[3][N];
+		String[] names = { "uniform", "few-unique", "sorted" };
+		for (int i = 0; i < N; i++) {
+			inputs[0][i] = StdRandom.uniform(N);
+			inputs[1][i] = StdRandom.uniform(10);
+			inputs[2][i] = i;
+		}
+
+		System.out.printf("%-12s %12s %12s %12s%n", "partitioning", names[0], names[1], names[2]);
+		for (Quicksort.Partitioning p : Quicksort.Partitioning.values()) {
+			Quicksort sorter = new Quicksort(p);
+			System.out.printf("%-12s", p);
+			for (Integer[] input : inputs) {
+				double best = Double.MAX_VALUE;
+				for (int t = 0; t < trials; t++) {
+					Integer[] a = input.clone();
+					best = Math.min(best, time(() -> sorter.sort(a)));
+					checkSorted(p, a);
+				}
+				System.out.printf(" %9.2f ms", best);
+			}
+			System.out.println();
+		}
+	}
+
+	/**
+	 * times NaturalMergeSort against MergeSort on sorted input with a small
+	 * fraction of late arrivals appended out of order, and on random input
+	 * @param N = the number of keys
+	 * @param trials = how many times to repeat each sort
+	 */
+	static void natural(int N, int trials) {
+		SortingAlgorithm[] algorithms = { new MergeSort(), new NaturalMergeSort() };
+		double[] lateFractions = { 0.0, 0.001, 0.01, 0.1, 1.0 };
+		System.out.printf("%-18s", "late arrivals");
+		for (SortingAlgorithm alg : algorithms) System.out.printf(" %16s", alg.getClass().getSimpleName());
+		System.out.println();
+
+		for (double late : lateFractions) {
+			Integer[] keys = new Integer[N];
+			for (int i = 0; i < N; i++)
+				keys[i] = StdRandom.bernoulli(late) ? StdRandom.uniform(N) : i;
+			System.out.printf("%-18s", (late * 100) + "%");
+			for (SortingAlgorithm alg : algorithms) {
+				double best = Double.MAX_VALUE;
+				for (int t = 0; t < trials; t++) {
+					Integer[] a = keys.clone();
+					best = Math.min(best, time(() -> alg.sort(a)));
+					checkSorted(alg, a);
+				}
+				System.out.printf(" %13.2f ms", best);
+			}
+			System.out.println();
+		}
+	}
+
+	/**
+	 * sorts many medium-sized batches with MergeSort.sort() and with
+	 * sortBottomUp(), and reports time and bytes allocated per sort in steady
+	 * state, then what sortBottomUp()'s AuxBufferPool allocated over all batches
+	 * @param N = the size of each batch
+	 * @param trials = how many rounds of batches to run
+	 */
+	static void bottomUp(int N, int trials) {
+		int batches = Math.max(1, 10000000 / Math.max(N, 1));
+		Integer[] keys = new Integer[N];
+		for (int i = 0; i < N; i++) keys[i] = StdRandom.uniform(N);
+		Integer[] a = new Integer[N];
+		MergeSort sorter = new MergeSort();
+		AuxBufferPool pool = new AuxBufferPool();
+
+		System.out.printf("%-14s %12s %16s%n", "mode", "us/sort", "bytes/sort");
+		for (String mode : new String[] { "sort", "sortBottomUp" }) {
+			double best = Double.MAX_VALUE;
+			long bytes = 0;
+			for (int t = 0; t < trials; t++) {
+				long before = allocatedBytes();
+				double ms = time(() -> {
+					for (int b = 0; b < batches; b++) {
+						System.arraycopy(keys, 0, a, 0, N);
+						if (mode.equals("sort")) sorter.sort(a);
+						else sorter.sortBottomUp(a, pool);
+					}
+				});
+				bytes = (allocatedBytes() - before) / batches;
+				best = Math.min(best, ms);
+				checkSorted(mode, a);
+			}
+			System.out.printf("%-14s %12.2f %16d%n", mode, 1000 * best / batches, bytes);
+		}
+		System.out.printf("aux pool: %d allocations, %d bytes for %d sorts%n",
+				pool.allocations(), pool.bytesAllocated(), (long) batches * trials);
+	}
+
+	/**
+	 * @return the bytes allocated so far by the current thread, or 0 if the
+	 *         JVM doesn't support measuring it
+	 */
+	static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) return 0;
+		return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * times each algorithm's Comparable[] path against its Comparator path
+	 * on Edge[] (by weight) and String[] (natural order)
+	 * @param N = the number of items
+	 * @param trials = how many times to repeat each sort
+	 */
+	static void comparator(int N, int trials) {
+		SortingAlgorithm[] algorithms = { new Shellsort(), new MergeSort(), new Quicksort(), new Introsort(), new NaturalMergeSort() };
+		Edge[] edges = new Edge[N];
+		String[] strings = new String[N];
+		for (int i = 0; i < N; i++) {
+			edges[i] = new Edge(i, i, StdRandom.uniform());
+			strings[i] = Long.toString(StdRandom.uniform(Long.MAX_VALUE), 36);
+		}
+		Comparator<Edge> byWeight = Comparator.comparingDouble(Edge::weight);
+		Comparator<String> natural = Comparator.naturalOrder();
+
+		System.out.printf("%-18s %-7s %12s %12s%n", "algorithm", "type", "Comparable", "Comparator");
+		for (SortingAlgorithm alg : algorithms) {
+			double comparable = Double.MAX_VALUE, comparing = Double.MAX_VALUE;
+			for (int t = 0; t < trials; t++) {
+				Edge[] a = edges.clone(), b = edges.clone();
+				comparable = Math.min(comparable, time(() -> alg.sort(a)));
+				comparing = Math.min(comparing, time(() -> alg.sort(b, byWeight)));
+				checkSorted(alg, a);
+				checkSorted(alg, b, byWeight);
+			}
+			System.out.printf("%-18s %-7s %9.2f ms %9.2f ms%n", alg.getClass().getSimpleName(), "Edge", comparable, comparing);
+
+			comparable = Double.MAX_VALUE; comparing = Double.MAX_VALUE;
+			for (int t = 0; t < trials; t++) {
+				String[] a = strings.clone(), b = strings.clone();
+				comparable = Math.min(comparable, time(() -> alg.sort(a)));
+				comparing = Math.min(comparing, time(() -> alg.sort(b, natural)));
+				checkSorted(alg, a);
+				checkSorted(alg, b);
+			}
+			System.out.printf("%-18s %-7s %9.2f ms %9.2f ms%n", alg.getClass().getSimpleName(), "String", comparable, comparing);
+		}
+	}
+
+	/**
+	 * sorts the same random keys with every algorithm through InstrumentedSort
+	 * and prints the SortCounters for each; needs -Dcom.gommeh.sorting.metrics=true
+	 * for anything beyond the wall time
+	 * @param N = the number of keys
+	 * @param trials = how many times to repeat each sort
+	 */
+	static void metrics(int N, int trials) {
+		if (!SortingAlgorithm.metricsEnabled())
+			System.out.println("(run with -Dcom.gommeh.sorting.metrics=true to count compares, exchanges, writes and depth)");
+		SortingAlgorithm[] algorithms = { new Shellsort(), new MergeSort(), new Quicksort(), new Introsort(), new NaturalMergeSort() };
+		Integer[] keys = new Integer[N];
+		for (int i = 0; i < N; i++) keys[i] = StdRandom.uniform(N);
+
+		SortCounters counters = new SortCounters();
+		SortingAlgorithm.setMetrics(counters);
+		for (SortingAlgorithm alg : algorithms) {
+			SortingAlgorithm instrumented = new InstrumentedSort(alg);
+			counters.reset();
+			for (int t = 0; t < trials; t++) instrumented.sort(keys.clone());
+			System.out.printf("%-18s %s%n", alg.getClass().getSimpleName(), counters);
+		}
+		SortingAlgorithm.setMetrics(null);
+	}
+
+	// input shapes for suite() and keys()
+	static final String[] DISTRIBUTIONS = {
+		"uniform", "gaussian", "pareto", "geometric", "sorted", "reversed", "organ-pipe", "few-unique"
+	};
+
+	// fixed so that suite() runs are reproducible
+	static final long SEED = 20201015L;
+
+	/**
+	 * generates n keys of the given shape with StdRandom
+	 * @param distribution = one of DISTRIBUTIONS
+	 * @param n = how many keys
+	 * @return the keys
+	 */
+	static double[] keys(String distribution, int n) {
+		double[] a = new double[n];
+		for (int i = 0; i < n; i++) {
+			switch (distribution) {
+			case "uniform":    a[i] = StdRandom.uniform(); break;
+			case "gaussian":   a[i] = StdRandom.gaussian(); break;
+			case "pareto":     a[i] = StdRandom.pareto(); break;
+			case "geometric":  a[i] = StdRandom.geometric(0.01); break;
+			case "sorted":     a[i] = i; break;
+			case "reversed":   a[i] = n - i; break;
+			case "organ-pipe": a[i] = i < n/2 ? i : n - i; break;
+			case "few-unique": a[i] = StdRandom.uniform(8); break;
+			default: throw new IllegalArgumentException("unknown distribution: " + distribution);
+			}
+		}
+		return a;
+	}
+
+	/**
+	 * Runs every SortingAlgorithm on every distribution at sizes 10, 100, ...
+	 * up to maxN (so 10^8 needs a heap big enough for two Double[10^8]).
+	 * Each cell warms up, then repeats the sort until at least minIterations
+	 * runs and 200 ms of sorting have been timed, and reports throughput,
+	 * the allocation rate of the sorting thread, and how many GCs ran. Inputs
+	 * are regenerated from SEED for every cell, so runs are reproducible.
+	 * @param maxN = the largest size to run
+	 * @param minIterations = the fewest measured sorts per cell
+	 */
+	static void suite(int maxN, int minIterations) {
+		SortingAlgorithm[] algorithms = {
+			new InsertionSort(), new Shellsort(), new MergeSort(), new NaturalMergeSort(),
+			new Quicksort(), new Quicksort(Quicksort.Partitioning.THREE_WAY),
+			new Quicksort(Quicksort.Partitioning.DUAL_PIVOT), new Introsort(), new AutoSort(false),
+			new RotationMergeSort(), new SampleSort()
+		};
+		String[] names = {
+			"InsertionSort", "Shellsort", "MergeSort", "NaturalMergeSort",
+			"Quicksort", "Quicksort/3way", "Quicksort/dual", "Introsort", "AutoSort",
+			"RotationMergeSort", "SampleSort"
+		};
+		System.out.printf("%-18s %-11s %10s %14s %12s %8s%n", "algorithm", "input", "N", "Mkeys/s", "MB/s alloc", "GCs");
+
+		for (int n = 10; n <= maxN; n *= 10) {
+			for (String distribution : DISTRIBUTIONS) {
+				StdRandom.setSeed(SEED);
+				double[] keys = keys(distribution, n);
+				Double[] input = new Double[n];
+				for (int i = 0; i < n; i++) input[i] = keys[i];
+				Double[] a = new Double[n];
+
+				for (int k = 0; k < algorithms.length; k++) {
+					SortingAlgorithm alg = algorithms[k];
+					if (alg instanceof InsertionSort && n > MAX_QUADRATIC_N) continue;
+
+					// warm up for roughly as long as we measure
+					long warmup = System.nanoTime();
+					do {
+						System.arraycopy(input, 0, a, 0, n);
+						alg.sort(a);
+					} while (System.nanoTime() - warmup < 100000000L);
+
+					long gcs = gcCount(), bytes = allocatedBytes(), nanos = 0;
+					int iterations = 0;
+					while (iterations < minIterations || nanos < 200000000L) {
+						System.arraycopy(input, 0, a, 0, n);
+						long start = System.nanoTime();
+						alg.sort(a);
+						nanos += System.nanoTime() - start;
+						iterations++;
+					}
+					bytes = allocatedBytes() - bytes;
+					gcs = gcCount() - gcs;
+					checkSorted(names[k], a);
+
+					System.out.printf("%-18s %-11s %10d %14.3f %12.1f %8d%n", names[k], distribution, n,
+							(double) n * iterations / nanos * 1e3, bytes / (nanos / 1e9) / 1e6, gcs);
+				}
+			}
+		}
+	}
+
+	/**
+	 * times LSDRadixSort against the primitive Quicksort and MergeSort on
+	 * random int[], long[] and double[] keys, and the String radix sorts
+	 * against Quicksort and MergeSort on random String[] keys
+	 * @param N = the number of keys
+	 * @param trials = how many times to repeat each sort
+	 */
+	static void radix(int N, int trials) {
+		SortingAlgorithm[] algorithms = { new Quicksort(), new MergeSort(), new LSDRadixSort() };
+		int[] ints = new int[N];
+		long[] longs = new long[N];
+		double[] doubles = keys("gaussian", N);
+		for (int i = 0; i < N; i++) {
+			ints[i] = StdRandom.uniform(-1000000000, 1000000000);
+			longs[i] = StdRandom.uniform(Long.MAX_VALUE) - StdRandom.uniform(Long.MAX_VALUE);
+		}
+
+		System.out.printf("%-30s %12s %12s %12s%n", "algorithm", "int[]", "long[]", "double[]");
+		for (SortingAlgorithm alg : algorithms) {
+			double i = Double.MAX_VALUE, l = Double.MAX_VALUE, d = Double.MAX_VALUE;
+			for (int t = 0; t < trials; t++) {
+				int[] a = ints.clone();
+				long[] b = longs.clone();
+				double[] c = doubles.clone();
+				i = Math.min(i, time(() -> alg.sort(a)));
+				l = Math.min(l, time(() -> alg.sort(b)));
+				d = Math.min(d, time(() -> alg.sort(c)));
+				checkSorted(alg, a);
+				checkSorted(alg, b);
+				checkSorted(alg, c);
+			}
+			System.out.printf("%-30s %9.2f ms %9.2f ms %9.2f ms%n", alg.getClass().getSimpleName(), i, l, d);
+		}
+
+		String[] strings = new String[N];
+		for (int i = 0; i < N; i++)
+			strings[i] = "user-" + StdRandom.uniform(N / 10 + 1) + "-" + Long.toString(StdRandom.uniform(Long.MAX_VALUE), 36);
+		SortingAlgorithm[] stringSorts = {
+			new Quicksort(), new MergeSort(),
+			new StringRadixSort(StringRadixSort.Mode.MSD), new StringRadixSort(StringRadixSort.Mode.THREE_WAY_QUICK)
+		};
+		String[] names = { "Quicksort", "MergeSort", "StringRadixSort/MSD", "StringRadixSort/3way" };
+		for (int k = 0; k < stringSorts.length; k++) {
+			SortingAlgorithm alg = stringSorts[k];
+			double best = Double.MAX_VALUE;
+			for (int t = 0; t < trials; t++) {
+				String[] a = strings.clone();
+				best = Math.min(best, time(() -> alg.sort(a)));
+				checkSorted(names[k], a);
+			}
+			System.out.printf("%-30s %9.2f ms (String[])%n", names[k], best);
+		}
+	}
+
+	/**
+	 * merges k sorted Integer streams of N/k items each with KWayMerge and
+	 * LoserTree, against concatenating them and running MergeSort
+	 * @param N = the total number of items
+	 * @param trials = how many times to repeat each merge
+	 */
+	static void kway(int N, int trials) {
+		System.out.printf("%-8s %14s %14s %14s%n", "k", "KWayMerge", "LoserTree", "concat+sort");
+		for (int k = 4; k <= 4096; k *= 8) {
+			int m = Math.max(1, N / k);
+			List<Integer[]> runs = new ArrayList<>();
+			for (int r = 0; r < k; r++) {
+				Integer[] run = new Integer[m];
+				for (int i = 0; i < m; i++) run[i] = StdRandom.uniform(N);
+				new MergeSort().sort(run);
+				runs.add(run);
+			}
+			Comparator<Integer> natural = Comparator.naturalOrder();
+			double pq = Double.MAX_VALUE, tree = Double.MAX_VALUE, concat = Double.MAX_VALUE;
+			for (int t = 0; t < trials; t++) {
+				Integer[] out = new Integer[k * m];
+				pq = Math.min(pq, time(() -> drain(new KWayMerge<Integer>(iterators(runs), natural), out)));
+				checkSorted("KWayMerge", out);
+				tree = Math.min(tree, time(() -> drain(new LoserTree<Integer>(iterators(runs), natural), out)));
+				checkSorted("LoserTree", out);
+				concat = Math.min(concat, time(() -> {
+					for (int r = 0; r < runs.size(); r++) System.arraycopy(runs.get(r), 0, out, r * m, m);
+					new MergeSort().sort(out);
+				}));
+				checkSorted("MergeSort", out);
+			}
+			System.out.printf("%-8d %11.2f ms %11.2f ms %11.2f ms%n", k, pq, tree, concat);
+		}
+	}
+
+	private static List<Iterator<Integer>> iterators(List<Integer[]> runs) {
+		List<Iterator<Integer>> iterators = new ArrayList<>();
+		for (Integer[] run : runs) iterators.add(Arrays.asList(run).iterator());
+		return iterators;
+	}
+
+	private static void drain(Iterator<Integer> merge, Integer[] out) {
+		int i = 0;
+		while (merge.hasNext()) out[i++] = merge.next();
+	}
+
+	/**
+	 * finds the 10, 1000 and 100000 smallest of N random keys with a full
+	 * MergeSort, PartialSort.partialSort() and PartialSort.topK()
+	 * @param N = the number of keys
+	 * @param trials = how many times to repeat each
+	 */
+	static void topK(int N, int trials) {
+		Integer[] keys = new Integer[N];
+		for (int i = 0; i < N; i++) keys[i] = StdRandom.uniform(N);
+		Comparator<Integer> natural = Comparator.naturalOrder();
+
+		System.out.printf("%-10s %14s %14s %14s%n", "k", "full sort", "partialSort", "topK");
+		for (int k = 10; k <= Math.min(N, 100000); k *= 100) {
+			final int K = k;
+			double full = Double.MAX_VALUE, partial = Double.MAX_VALUE, top = Double.MAX_VALUE;
+			for (int t = 0; t < trials; t++) {
+				Integer[] a = keys.clone(), b = keys.clone();
+				full = Math.min(full, time(() -> new MergeSort().sort(a)));
+				partial = Math.min(partial, time(() -> PartialSort.partialSort(b, K)));
+				top = Math.min(top, time(() -> PartialSort.topK(keys, K, natural)));
+				checkSorted("MergeSort", a);
+				checkSorted("partialSort", Arrays.copyOf(b, K));
+			}
+			System.out.printf("%-10d %11.2f ms %11.2f ms %11.2f ms%n", k, full, partial, top);
+		}
+	}
+
+	/**
+	 * times every Shellsort.StandardGaps sequence on random int[] and
+	 * Integer[] keys for each size class 10^2, 10^3, ... up to N, and
+	 * reports the fastest sequence per size class and element type
+	 * @param N = the largest size
+	 * @param trials = how many times to repeat each sort
+	 */
+	static void gaps(int N, int trials) {
+		Shellsort.StandardGaps[] sequences = Shellsort.StandardGaps.values();
+		System.out.printf("%-10s %-8s", "N", "type");
+		for (Shellsort.StandardGaps g : sequences) System.out.printf(" %12s", g);
+		System.out.printf("  %s%n", "fastest");
+
+		for (int n = 100; n <= N; n *= 10) {
+			int[] ints = new int[n];
+			for (int i = 0; i < n; i++) ints[i] = StdRandom.uniform(n);
+			Integer[] boxed = new Integer[n];
+			for (int i = 0; i < n; i++) boxed[i] = ints[i];
+
+			for (String type : new String[] { "int", "Integer" }) {
+				System.out.printf("%-10d %-8s", n, type);
+				double fastest = Double.MAX_VALUE;
+				Shellsort.StandardGaps winner = null;
+				for (Shellsort.StandardGaps g : sequences) {
+					Shellsort sorter = new Shellsort(g);
+					double best = Double.MAX_VALUE;
+					// repeat small sizes so each timing covers more than the timer's resolution
+					int reps = Math.max(1, 100000 / n);
+					for (int t = 0; t < trials; t++) {
+						int[] a = new int[n];
+						Integer[] b = new Integer[n];
+						double ms = time(() -> {
+							for (int r = 0; r < reps; r++) {
+								if (type.equals("int")) {
+									System.arraycopy(ints, 0, a, 0, a.length);
+									sorter.sort(a);
+								}
+								else {
+									System.arraycopy(boxed, 0, b, 0, b.length);
+									sorter.sort(b);
+								}
+							}
+						}) / reps;
+						best = Math.min(best, ms);
+						if (type.equals("int")) checkSorted(g, a);
+						else checkSorted(g, b);
+					}
+					System.out.printf(" %9.4f ms", best);
+					if (best < fastest) {
+						fastest = best;
+						winner = g;
+					}
+				}
+				System.out.printf("  %s%n", winner);
+			}
+		}
+	}
+
+	/**
+	 * times MergeSort and Quicksort on N random Integer keys for a range of
+	 * insertion sort cutoffs, then the three insertion sorts on their own
+	 * for the small sizes those cutoffs hand them
+	 * @param N = the number of keys
+	 * @param trials = how many times to repeat each sort
+	 */
+	static void cutoff(int N, int trials) {
+		Integer[] keys = new Integer[N];
+		for (int i = 0; i < N; i++) keys[i] = StdRandom.uniform(N);
+
+		System.out.printf("%-8s %14s %14s%n", "cutoff", "MergeSort", "Quicksort");
+		for (int cutoff : new int[] { 0, 4, 8, 12, 16, 24, 32, 48, 64 }) {
+			SortingAlgorithm merge = new MergeSort(cutoff);
+			SortingAlgorithm quick = new Quicksort(Quicksort.Partitioning.HOARE, cutoff);
+			double m = Double.MAX_VALUE, q = Double.MAX_VALUE;
+			for (int t = 0; t < trials; t++) {
+				Integer[] a = keys.clone(), b = keys.clone();
+				m = Math.min(m, time(() -> merge.sort(a)));
+				q = Math.min(q, time(() -> quick.sort(b)));
+				checkSorted(merge, a);
+				checkSorted(quick, b);
+			}
+			System.out.printf("%-8d %11.2f ms %11.2f ms%n", cutoff, m, q);
+		}
+
+		System.out.printf("%n%-8s %14s %14s %14s%n", "n", "exchange", "binary", "sentinel");
+		for (int n : new int[] { 4, 8, 16, 32, 64 }) {
+			// sort many small arrays back to back so each timing is long enough to measure
+			int reps = Math.max(1, N / n);
+			Integer[] small = Arrays.copyOf(keys, n);
+			Integer[] a = new Integer[n];
+			double exchange = Double.MAX_VALUE, binary = Double.MAX_VALUE, sentinel = Double.MAX_VALUE;
+			for (int t = 0; t < trials; t++) {
+				exchange = Math.min(exchange, time(() -> {
+					for (int r = 0; r < reps; r++) {
+						System.arraycopy(small, 0, a, 0, a.length);
+						InsertionSort.sort(a, 0, a.length - 1);
+					}
+				}));
+				binary = Math.min(binary, time(() -> {
+					for (int r = 0; r < reps; r++) {
+						System.arraycopy(small, 0, a, 0, a.length);
+						InsertionSort.binarySort(a, 0, a.length - 1);
+					}
+				}));
+				sentinel = Math.min(sentinel, time(() -> {
+					for (int r = 0; r < reps; r++) {
+						System.arraycopy(small, 0, a, 0, a.length);
+						InsertionSort.sentinelSort(a, 0, a.length - 1);
+					}
+				}));
+				checkSorted("sentinelSort", a);
+			}
+			System.out.printf("%-8d %11.2f ms %11.2f ms %11.2f ms%n", n, exchange, binary, sentinel);
+		}
+	}
+
+	/**
+	 * the measurements behind AutoSort's thresholds. Each table times the
+	 * candidates on one side of a threshold against AutoSort itself:
+	 * small sizes (INSERTION_MAX), the fraction of keys out of place
+	 * (PRESORTED_MAX), the number of distinct keys (DUPLICATES_MIN) and
+	 * primitive array sizes (RADIX_MIN)
+	 * @param N = the number of keys for the presorted and duplicate tables, and the largest primitive size
+	 * @param trials = how many times to repeat each sort
+	 */
+	static void auto(int N, int trials) {
+		SortCounters counters = new SortCounters();
+		SortMetrics previous = SortingAlgorithm.getMetrics();
+		SortingAlgorithm.setMetrics(counters);
+
+		SortingAlgorithm[] small = { new InsertionSort(), new MergeSort(), new Quicksort(), new AutoSort(false) };
+		System.out.printf("%-10s", "n");
+		for (SortingAlgorithm alg : small) System.out.printf(" %14s", alg.getClass().getSimpleName());
+		System.out.println();
+		for (int n = 8; n <= 256; n *= 2) {
+			Integer[] keys = new Integer[n];
+			for (int i = 0; i < n; i++) keys[i] = StdRandom.uniform(n);
+			// sort many small arrays back to back so each timing is long enough to measure
+			int reps = Math.max(1, N / n);
+			System.out.printf("%-10d", n);
+			for (SortingAlgorithm alg : small) {
+				Integer[] a = new Integer[n];
+				double best = Double.MAX_VALUE;
+				for (int t = 0; t < trials; t++) {
+					best = Math.min(best, time(() -> {
+						for (int r = 0; r < reps; r++) {
+							System.arraycopy(keys, 0, a, 0, a.length);
+							alg.sort(a);
+						}
+					}));
+					checkSorted(alg, a);
+				}
+				System.out.printf(" %11.2f ms", best);
+			}
+			System.out.println();
+		}
+
+		SortingAlgorithm[] objects = {
+			new MergeSort(), new NaturalMergeSort(), new Quicksort(),
+			new Quicksort(Quicksort.Partitioning.THREE_WAY), new AutoSort(false)
+		};
+		String[] names = { "MergeSort", "NaturalMergeSort", "Quicksort", "Quicksort/3way", "AutoSort" };
+		System.out.printf("%n%-14s", "out of place");
+		for (String name : names) System.out.printf(" %16s", name);
+		System.out.println("  AutoSort picked");
+		for (double p : new double[] { 0.0, 0.001, 0.01, 0.05, 0.1, 0.5 }) {
+			Integer[] keys = new Integer[N];
+			for (int i = 0; i < N; i++) keys[i] = StdRandom.bernoulli(p) ? StdRandom.uniform(N) : i;
+			System.out.printf("%-14s", (p * 100) + "%");
+			autoRow(objects, keys, trials, counters);
+		}
+
+		System.out.printf("%n%-14s", "distinct keys");
+		for (String name : names) System.out.printf(" %16s", name);
+		System.out.println("  AutoSort picked");
+		for (int distinct = 2; distinct <= N; distinct *= 16) {
+			Integer[] keys = new Integer[N];
+			for (int i = 0; i < N; i++) keys[i] = StdRandom.uniform(distinct);
+			System.out.printf("%-14d", distinct);
+			autoRow(objects, keys, trials, counters);
+		}
+
+		SortingAlgorithm[] primitives = { new Quicksort(), new LSDRadixSort(), new AutoSort() };
+		System.out.printf("%n%-14s", "int[] n");
+		for (SortingAlgorithm alg : primitives) System.out.printf(" %16s", alg.getClass().getSimpleName());
+		System.out.println();
+		for (int n = 256; n <= N; n *= 4) {
+			int[] ints = new int[n];
+			for (int i = 0; i < n; i++) ints[i] = StdRandom.uniform(-1000000000, 1000000000);
+			int reps = Math.max(1, N / n);
+			System.out.printf("%-14d", n);
+			for (SortingAlgorithm alg : primitives) {
+				int[] a = new int[n];
+				double best = Double.MAX_VALUE;
+				for (int t = 0; t < trials; t++) {
+					best = Math.min(best, time(() -> {
+						for (int r = 0; r < reps; r++) {
+							System.arraycopy(ints, 0, a, 0, a.length);
+							alg.sort(a);
+						}
+					}));
+					checkSorted(alg, a);
+				}
+				System.out.printf(" %13.2f ms", best);
+			}
+			System.out.println();
+		}
+		SortingAlgorithm.setMetrics(previous);
+	}
+
+	// one row of auto(): every algorithm on the same keys, then what AutoSort chose for them
+	private static void autoRow(SortingAlgorithm[] algorithms, Integer[] keys, int trials, SortCounters counters) {
+		counters.reset();
+		for (SortingAlgorithm alg : algorithms) {
+			double best = Double.MAX_VALUE;
+			for (int t = 0; t < trials; t++) {
+				Integer[] a = keys.clone();
+				best = Math.min(best, time(() -> alg.sort(a)));
+				checkSorted(alg, a);
+			}
+			System.out.printf(" %13.2f ms", best);
+		}
+		System.out.println("  " + counters.decisions().keySet());
+	}
+
+	/**
+	 * times SampleSort against the fork/join MergeSort and Quicksort on N
+	 * random Integer keys with 1, 2, 4, ... up to every available core, as
+	 * speedups over sequential MergeSort
+	 * @param N = the number of keys
+	 * @param trials = how many times to repeat each sort
+	 */
+	static void sampleSort(int N, int trials) {
+		Integer[] keys = new Integer[N];
+		for (int i = 0; i < N; i++) keys[i] = StdRandom.uniform(N);
+		MergeSort merge = new MergeSort();
+		Quicksort quick = new Quicksort();
+
+		double sequential = Double.MAX_VALUE;
+		for (int t = 0; t < trials; t++) {
+			Integer[] a = keys.clone();
+			sequential = Math.min(sequential, time(() -> merge.sort(a)));
+			checkSorted(merge, a);
+		}
+		System.out.printf("%-12s %9.2f ms%n", "sequential", sequential);
+		System.out.printf("%-12s %21s %21s %21s%n", "", "SampleSort", "MergeSort.parallel", "Quicksort.parallel");
+
+		int cores = Runtime.getRuntime().availableProcessors();
+		for (int p = 1; p <= cores; p = (p == cores || 2*p <= cores) ? 2*p : cores) {
+			ForkJoinPool pool = new ForkJoinPool(p);
+			SampleSort sample = new SampleSort(new MergeSort(), pool, SampleSort.DEFAULT_CUTOFF);
+			double s = Double.MAX_VALUE, m = Double.MAX_VALUE, q = Double.MAX_VALUE;
+			for (int t = 0; t < trials; t++) {
+				Integer[] a = keys.clone(), b = keys.clone(), c = keys.clone();
+				s = Math.min(s, time(() -> sample.sort(a)));
+				m = Math.min(m, time(() -> merge.parallelSort(b, MergeSort.DEFAULT_PARALLEL_CUTOFF, pool)));
+				q = Math.min(q, time(() -> quick.parallelSort(c, Quicksort.DEFAULT_PARALLEL_CUTOFF, pool)));
+				checkSorted(sample, a);
+				checkSorted(merge, b);
+				checkSorted(quick, c);
+			}
+			pool.shutdown();
+			System.out.printf("%-12s %9.2f ms %7.2fx %9.2f ms %7.2fx %9.2f ms %7.2fx%n", "cores=" + p,
+					s, sequential / s, m, sequential / m, q, sequential / q);
+		}
+	}
+
+	/**
+	 * sorts N random Edges by weight by comparing them (MergeSort and
+	 * Quicksort on Edge.compareTo, MergeSort on a Comparator) against
+	 * KeySort, which extracts the weights once and sorts those
+	 * @param N = the number of edges
+	 * @param trials = how many times to repeat each sort
+	 */
+	static void keySort(int N, int trials) {
+		Edge[] edges = new Edge[N];
+		for (int i = 0; i < N; i++)
+			edges[i] = new Edge(StdRandom.uniform(N), StdRandom.uniform(N), StdRandom.uniform());
+		Comparator<Edge> byWeight = Comparator.comparingDouble(Edge::weight);
+		String[] names = { "MergeSort", "Quicksort", "MergeSort/Comparator", "KeySort" };
+		Runnable[] sorts = new Runnable[names.length];
+		Edge[] a = new Edge[N];
+		sorts[0] = () -> new MergeSort().sort(a);
+		sorts[1] = () -> new Quicksort().sort(a);
+		sorts[2] = () -> new MergeSort().sort(a, byWeight);
+		sorts[3] = () -> KeySort.sortByDoubleKey(a, Edge::weight);
+
+		for (int k = 0; k < sorts.length; k++) {
+			double best = Double.MAX_VALUE;
+			for (int t = 0; t < trials; t++) {
+				System.arraycopy(edges, 0, a, 0, N);
+				best = Math.min(best, time(sorts[k]));
+				checkSorted(names[k], a, byWeight);
+			}
+			System.out.printf("%-22s %9.2f ms%n", names[k], best);
+		}
+	}
+
+	/**
+	 * sorts N 32-byte records with an 8-byte key in a direct ByteBuffer with
+	 * each RecordSort engine, against deserializing the keys into Long[] and
+	 * sorting those, and reports the heap each one allocates
+	 * @param N = the number of records
+	 * @param trials = how many times to repeat each sort
+	 */
+	static void records(int N, int trials) {
+		int recordSize = 32;
+		ByteBuffer input = ByteBuffer.allocateDirect(N * recordSize);
+		for (int i = 0; i < N; i++) {
+			input.putLong(i * recordSize, StdRandom.uniform(Long.MAX_VALUE));
+			input.putInt(i * recordSize + 8, i);
+		}
+		ByteBuffer buffer = ByteBuffer.allocateDirect(N * recordSize);
+
+		System.out.printf("%-18s %12s %14s%n", "engine", "time", "heap alloc");
+		for (RecordSort.Engine engine : RecordSort.Engine.values()) {
+			RecordSort sorter = new RecordSort(recordSize, 0, 8, engine);
+			double best = Double.MAX_VALUE;
+			long bytes = Long.MAX_VALUE;
+			for (int t = 0; t < trials; t++) {
+				buffer.clear();
+				buffer.put(input.duplicate().clear()).clear();
+				long before = allocatedBytes();
+				best = Math.min(best, time(() -> sorter.sort(buffer)));
+				bytes = Math.min(bytes, allocatedBytes() - before);
+				for (int i = 1; i < N; i++)
+					if (Long.compareUnsigned(buffer.getLong((i-1) * recordSize), buffer.getLong(i * recordSize)) > 0)
+						throw new IllegalStateException(engine + " didn't sort");
+			}
+			System.out.printf("%-18s %9.2f ms %11.1f MB%n", engine, best, bytes / 1e6);
+		}
+
+		double best = Double.MAX_VALUE;
+		long bytes = Long.MAX_VALUE;
+		for (int t = 0; t < trials; t++) {
+			long before = allocatedBytes();
+			best = Math.min(best, time(() -> {
+				Long[] keys = new Long[N];
+				for (int i = 0; i < N; i++) keys[i] = input.getLong(i * recordSize);
+				new MergeSort().sort(keys);
+			}));
+			bytes = Math.min(bytes, allocatedBytes() - before);
+		}
+		System.out.printf("%-18s %9.2f ms %11.1f MB%n", "Long[] MergeSort", best, bytes / 1e6);
+	}
+
+	/**
+	 * inserts N random keys one at a time and asks for the rank of a random
+	 * key after every 1000 inserts, with a SortedBuffer, with re-sorting the
+	 * whole array before each query and with binary insertion into a sorted array
+	 * @param N = the number of keys
+	 * @param trials = how many times to repeat each
+	 */
+	static void sortedBuffer(int N, int trials) {
+		int[] keys = new int[N];
+		for (int i = 0; i < N; i++) keys[i] = StdRandom.uniform(N);
+		int every = 1000;
+
+		double buffered = Double.MAX_VALUE, resort = Double.MAX_VALUE, insertion = Double.MAX_VALUE;
+		for (int t = 0; t < trials; t++) {
+			buffered = Math.min(buffered, time(() -> {
+				SortedBuffer<Integer> sb = new SortedBuffer<>();
+				for (int i = 0; i < N; i++) {
+					sb.insert(keys[i]);
+					if (i % every == 0) sb.rank(keys[i / 2]);
+				}
+			}));
+			resort = Math.min(resort, time(() -> {
+				Integer[] a = new Integer[N];
+				MergeSort merge = new MergeSort();
+				for (int i = 0; i < N; i++) {
+					a[i] = keys[i];
+					if (i % every == 0) {
+						Integer[] sorted = Arrays.copyOf(a, i + 1);
+						merge.sort(sorted);
+						Arrays.binarySearch(sorted, keys[i / 2]);
+					}
+				}
+			}));
+			if (N > MAX_QUADRATIC_N) continue;
+			insertion = Math.min(insertion, time(() -> {
+				Integer[] a = new Integer[N];
+				for (int i = 0; i < N; i++) {
+					int j = Arrays.binarySearch(a, 0, i, keys[i]);
+					if (j < 0) j = -j - 1;
+					System.arraycopy(a, j, a, j + 1, i - j);
+					a[j] = keys[i];
+					if (i % every == 0) Arrays.binarySearch(a, 0, i + 1, keys[i / 2]);
+				}
+			}));
+		}
+		System.out.printf("%-20s %9.2f ms%n", "SortedBuffer", buffered);
+		System.out.printf("%-20s %9.2f ms%n", "re-sort per query", resort);
+		if (N <= MAX_QUADRATIC_N) System.out.printf("%-20s %9.2f ms%n", "sorted insertion", insertion);
+	}
+
+	/**
+	 * sorts N random keys in consecutive ranges of 8 to 64 items with
+	 * InsertionSort and with SortingNetwork, for int[] and double[]
+	 * @param N = the number of keys, split into ranges
+	 * @param trials = how many times to repeat each
+	 */
+	static void networks(int N, int trials) {
+		int[] ints = new int[N];
+		double[] doubles = new double[N];
+		for (int i = 0; i < N; i++) {
+			ints[i] = StdRandom.uniform(-1000000000, 1000000000);
+			doubles[i] = StdRandom.gaussian();
+		}
+		int[] a = new int[N];
+		double[] b = new double[N];
+
+		System.out.printf("%-6s %14s %14s %14s %14s%n", "n", "int insertion", "int network", "dbl insertion", "dbl network");
+		for (int n : new int[] { 8, 12, 16, 24, 32, 48, 64 }) {
+			double[] best = { Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE };
+			for (int t = 0; t < trials; t++) {
+				System.arraycopy(ints, 0, a, 0, N);
+				best[0] = Math.min(best[0], time(() -> {
+					for (int lo = 0; lo + n <= N; lo += n) InsertionSort.sort(a, lo, lo + n - 1);
+				}));
+				System.arraycopy(ints, 0, a, 0, N);
+				best[1] = Math.min(best[1], time(() -> {
+					for (int lo = 0; lo + n <= N; lo += n) SortingNetwork.sort(a, lo, lo + n - 1);
+				}));
+				for (int lo = 0; lo + n <= N; lo += n) checkSorted("SortingNetwork", Arrays.copyOfRange(a, lo, lo + n));
+				System.arraycopy(doubles, 0, b, 0, N);
+				best[2] = Math.min(best[2], time(() -> {
+					for (int lo = 0; lo + n <= N; lo += n) InsertionSort.sort(b, lo, lo + n - 1);
+				}));
+				System.arraycopy(doubles, 0, b, 0, N);
+				best[3] = Math.min(best[3], time(() -> {
+					for (int lo = 0; lo + n <= N; lo += n) SortingNetwork.sort(b, lo, lo + n - 1);
+				}));
+				for (int lo = 0; lo + n <= N; lo += n) checkSorted("SortingNetwork", Arrays.copyOfRange(b, lo, lo + n));
+			}
+			System.out.printf("%-6d %11.2f ms %11.2f ms %11.2f ms %11.2f ms%n", n, best[0], best[1], best[2], best[3]);
+		}
+	}
+
+	/**
+	 * sorts the same random keys with RotationMergeSort and the other stable
+	 * sorts, and with Shellsort as the in-place baseline, printing the best
+	 * time, the time relative to MergeSort and the bytes allocated by one sort
+	 * @param N = the number of keys
+	 * @param trials = how many times to repeat each sort
+	 */
+	static void inPlace(int N, int trials) {
+		SortingAlgorithm[] algorithms = { new MergeSort(), new NaturalMergeSort(), new RotationMergeSort(), new Shellsort() };
+		Integer[] keys = new Integer[N];
+		for (int i = 0; i < N; i++) keys[i] = StdRandom.uniform(N);
+
+		System.out.printf("%-18s %12s %12s %16s%n", "algorithm", "time", "/MergeSort", "bytes allocated");
+		double merge = 0;
+		for (SortingAlgorithm alg : algorithms) {
+			double best = Double.MAX_VALUE;
+			long bytes = Long.MAX_VALUE;
+			for (int t = 0; t < trials; t++) {
+				Integer[] a = keys.clone();
+				long before = allocatedBytes();
+				best = Math.min(best, time(() -> alg.sort(a)));
+				bytes = Math.min(bytes, allocatedBytes() - before);
+				checkSorted(alg, a);
+			}
+			if (alg instanceof MergeSort) merge = best;
+			System.out.printf("%-18s %9.2f ms %11.2fx %16d%n", alg.getClass().getSimpleName(), best, best / merge, bytes);
+		}
+	}
+
+	/**
+	 * times MinPQ at several arities: N inserts then N delMins, insertAll
+	 * then delMin(N), the hold model of an event queue (N delMin + insert
+	 * pairs on a queue of N events), and in-place heapsort
+	 * @param N = the number of keys
+	 * @param trials = how many times to repeat each
+	 */
+	static void arity(int N, int trials) {
+		Double[] keys = new Double[N];
+		for (int i = 0; i < N; i++) keys[i] = StdRandom.uniform();
+
+		System.out.printf("%-6s %14s %14s %14s %14s%n", "arity", "insert", "insertAll", "hold", "heapsort");
+		for (int d : new int[] { 2, 3, 4, 8, 16 }) {
+			double[] best = { Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE };
+			for (int t = 0; t < trials; t++) {
+				best[0] = Math.min(best[0], time(() -> {
+					MinPQ<Double> pq = new MinPQ<Double>(1, null, d);
+					for (Double key : keys) pq.insert(key);
+					while (!pq.isEmpty()) pq.delMin();
+				}));
+				best[1] = Math.min(best[1], time(() -> {
+					MinPQ<Double> pq = new MinPQ<Double>(1, null, d);
+					pq.insertAll(keys);
+					pq.delMin(N);
+				}));
+				MinPQ<Double> events = new MinPQ<Double>(N, null, d);
+				events.insertAll(keys);
+				best[2] = Math.min(best[2], time(() -> {
+					for (int i = 0; i < N; i++) events.insert(events.delMin() + keys[i]);
+				}));
+				Double[] a = keys.clone();
+				best[3] = Math.min(best[3], time(() -> MinPQ.heapsort(a, 0, N - 1, Comparator.naturalOrder(), d)));
+				checkSorted("heapsort", a);
+			}
+			System.out.printf("%-6d %11.2f ms %11.2f ms %11.2f ms %11.2f ms%n", d, best[0], best[1], best[2], best[3]);
+		}
+	}
+
+	/**
+	 * @return the number of collections run so far by every garbage collector
+	 */
+	static long gcCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+			count += Math.max(0, gc.getCollectionCount());
+		return count;
+	}
+
+	private static void report(SortingAlgorithm alg, String type, double boxed, double primitive) {
+		System.out.printf("%-14s %-7s %9.2f ms %9.2f ms %7.2fx%n",
+				alg.getClass().getSimpleName(), type, boxed, primitive, boxed / primitive);
+	}
+
+	public static void main(String[] args) {
+		String scenario = args.length > 0 ? args[0] : "primitives";
+		int N = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+		int trials = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+		switch (scenario) {
+		case "primitives": primitives(N, trials); break;
+		case "parallelMerge": parallelMerge(N, trials); break;
+		case "parallelQuick": parallelQuick(N, trials); break;
+		case "partitioning": partitioning(N, trials); break;
+		case "natural": natural(N, trials); break;
+		case "bottomUp": bottomUp(N, trials); break;
+		case "comparator": comparator(N, trials); break;
+		case "metrics": metrics(N, trials); break;
+		case "suite": suite(N, trials); break;
+		case "radix": radix(N, trials); break;
+		case "kway": kway(N, trials); break;
+		case "topK": topK(N, trials); break;
+		case "gaps": gaps(N, trials); break;
+		case "cutoff": cutoff(N, trials); break;
+		case "auto": auto(N, trials); break;
+		case "sampleSort": sampleSort(N, trials); break;
+		case "keySort": keySort(N, trials); break;
+		case "records": records(N, trials); break;
+		case "sortedBuffer": sortedBuffer(N, trials); break;
+		case "networks": networks(N, trials); break;
+		case "inPlace": inPlace(N, trials); break;
+		case "arity": arity(N, trials); break;
+		case "verify": SortVerifier.run(N); break;
+		default: throw new IllegalArgumentException("unknown scenario: " + scenario);
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package com.gommeh.sorting;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A SortMetrics that just adds everything up. Safe to share between threads.
+ */
+public class SortCounters implements SortMetrics {
+
+	private final LongAdder sorts = new LongAdder();
+	private final LongAdder items = new LongAdder();
+	private final LongAdder nanos = new LongAdder();
+	private final LongAdder compares = new LongAdder();
+	private final LongAdder exchanges = new LongAdder();
+	private final LongAdder writes = new LongAdder();
+	private final AtomicInteger maxDepth = new AtomicInteger();
+	private final ThreadLocal<int[]> depth = ThreadLocal.withInitial(() -> new int[1]);
+	private final Map<String, LongAdder> decisions = new ConcurrentHashMap<>();
+
+	public void onSort(String algorithm, int n, long nanos) {
+		sorts.increment();
+		items.add(n);
+		this.nanos.add(nanos);
+	}
+
+	public void onDecision(String algorithm, int n, String reason) {
+		decisions.computeIfAbsent(algorithm, k -> new LongAdder()).increment();
+	}
+
+	public void onCompare() {
+		compares.increment();
+	}
+
+	public void onExchange() {
+		exchanges.increment();
+	}
+
+	public void onWrite(int count) {
+		writes.add(count);
+	}
+
+	public void onEnter() {
+		int d = ++depth.get()[0];
+		if (d > maxDepth.get()) maxDepth.accumulateAndGet(d, Math::max);
+	}
+
+	public void onExit() {
+		depth.get()[0]--;
+	}
+
+	public long sorts()     { return sorts.sum();     }
+	public long items()     { return items.sum();     }
+	public long nanos()     { return nanos.sum();     }
+	public long compares()  { return compares.sum();  }
+	public long exchanges() { return exchanges.sum(); }
+	public long writes()    { return writes.sum();    }
+	public int maxDepth()   { return maxDepth.get();  }
+
+	/**
+	 * @return how many times AutoSort picked each algorithm, by name
+	 */
+	public Map<String, Long> decisions() {
+		Map<String, Long> counts = new TreeMap<>();
+		decisions.forEach((algorithm, count) -> counts.put(algorithm, count.sum()));
+		return counts;
+	}
+
+	/**
+	 * sets every counter back to zero
+	 */
+	public void reset() {
+		sorts.reset();
+		items.reset();
+		nanos.reset();
+		compares.reset();
+		exchanges.reset();
+		writes.reset();
+		maxDepth.set(0);
+		decisions.clear();
+	}
+
+	public String toString() {
+		String s = String.format("sorts=%d items=%d time=%.3fms compares=%d exchanges=%d writes=%d maxDepth=%d",
+				sorts(), items(), nanos() / 1e6, compares(), exchanges(), writes(), maxDepth());
+		return decisions.isEmpty() ? s : s + " decisions=" + decisions();
+	}
+}
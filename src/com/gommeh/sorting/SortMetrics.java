@@ -0,0 +1,46 @@
+package com.gommeh.sorting;
+
+/**
+ * Listener for what the sorting algorithms do. Register one with
+ * SortingAlgorithm.setMetrics() and run with -Dcom.gommeh.sorting.metrics=true
+ * to receive the compare, exchange, write and recursion callbacks; without
+ * the flag those hooks are compiled out. onSort() is called by
+ * InstrumentedSort, which times each call it wraps whether or not the flag is set,
+ * and onDecision() by AutoSort, also regardless of the flag.
+ * <p>
+ * Parallel sorts call back from several threads at once, so implementations
+ * have to be thread-safe.
+ */
+public interface SortMetrics {
+
+	/**
+	 * one sort() call through an InstrumentedSort finished
+	 * @param algorithm = the simple class name of the wrapped algorithm
+	 * @param n = how many items were sorted
+	 * @param nanos = the wall time the call took
+	 */
+	void onSort(String algorithm, int n, long nanos);
+
+	/**
+	 * AutoSort picked an algorithm for one sort() call. Does nothing unless overridden.
+	 * @param algorithm = the name of the algorithm it picked, e.g. "Quicksort(THREE_WAY)"
+	 * @param n = how many items are being sorted
+	 * @param reason = what it sampled from the input that led to the choice
+	 */
+	default void onDecision(String algorithm, int n, String reason) {}
+
+	// two keys were compared
+	void onCompare();
+
+	// two items were swapped by exch()
+	void onExchange();
+
+	// items were stored into an array some other way than exch(), e.g. by a merge
+	void onWrite(int count);
+
+	// a recursive sort went one level deeper
+	void onEnter();
+
+	// ...and came back up
+	void onExit();
+}
@@ -0,0 +1,469 @@
+package com.gommeh.sorting;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Checks that everything in the package actually sorts. Each result is
+ * compared with Arrays.sort() on a copy of the same input, which is stable:
+ * a stable algorithm has to return the very same items in the very same
+ * order, any other one the same keys in the same order, holding every input
+ * item exactly once.
+ * <p>
+ * The inputs are Items that carry their original index next to the key,
+ * drawn from every SortBenchmark distribution plus all-equal keys and keys
+ * mixed with NaN, -0.0 and infinities. The sizes are the ones where the
+ * algorithms change strategy: empty, one item, the sorting network sizes,
+ * either side of the insertion sort cutoffs and of the parallel and radix
+ * thresholds, and N. Every object sort runs through sort(Comparable[]),
+ * through a descending Comparator and on a subrange that must leave the
+ * rest of the array alone.
+ * <p>
+ * The first wrong result throws an IllegalStateException naming the
+ * algorithm, the input and the size. Run it with SortBenchmark verify N.
+ */
+class SortVerifier {
+
+	// an item ordered by its key alone, so its index shows whether equal keys kept their order
+	static final class Item implements Comparable<Item> {
+		final double key;
+		final int index;
+
+		Item(double key, int index) {
+			this.key = key;
+			this.index = index;
+		}
+
+		public int compareTo(Item that) {
+			return Double.compare(key, that.key);
+		}
+
+		public String toString() {
+			return key + "#" + index;
+		}
+	}
+
+	private static final Comparator<Item> DESCENDING = (x, y) -> Double.compare(y.key, x.key);
+
+	// parallel cutoff small enough that the parallel code runs on small inputs too
+	private static final int SMALL_CUTOFF = 64;
+
+	// more than one thread even on a single core, so SampleSort doesn't fall back to its engine
+	private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+	private static final SortingAlgorithm[] OBJECT_SORTS = {
+		new InsertionSort(), new Shellsort(), new MergeSort(), new MergeSort(0), new NaturalMergeSort(),
+		new RotationMergeSort(), new Quicksort(), new Quicksort(Quicksort.Partitioning.THREE_WAY),
+		new Quicksort(Quicksort.Partitioning.DUAL_PIVOT), new Quicksort(Quicksort.Partitioning.HOARE, 0),
+		new Introsort(), new AutoSort(false), new AutoSort(true), new SampleSort(),
+		new SampleSort(new MergeSort(), POOL, SMALL_CUTOFF),
+		new Shellsort(Shellsort.StandardGaps.CIURA), new Shellsort(Shellsort.StandardGaps.PRATT)
+	};
+	private static final String[] OBJECT_NAMES = {
+		"InsertionSort", "Shellsort", "MergeSort", "MergeSort/cutoff=0", "NaturalMergeSort",
+		"RotationMergeSort", "Quicksort", "Quicksort/3way",
+		"Quicksort/dual", "Quicksort/cutoff=0",
+		"Introsort", "AutoSort", "AutoSort/stable", "SampleSort",
+		"SampleSort/cutoff=" + SMALL_CUTOFF,
+		"Shellsort/CIURA", "Shellsort/PRATT"
+	};
+	private static final boolean[] STABLE = {
+		true, false, true, true, true,
+		true, false, false,
+		false, false,
+		false, false, true, true,
+		true,
+		false, false
+	};
+
+	private static final SortingAlgorithm[] PRIMITIVE_SORTS = {
+		new InsertionSort(), new Shellsort(), new MergeSort(), new Quicksort(),
+		new Quicksort(Quicksort.Partitioning.THREE_WAY), new Quicksort(Quicksort.Partitioning.DUAL_PIVOT),
+		new LSDRadixSort(), new AutoSort(), new Introsort(), new SampleSort(),
+		new SampleSort(new Quicksort(), POOL, SMALL_CUTOFF), new SampleSort(new LSDRadixSort(), POOL, SMALL_CUTOFF)
+	};
+	private static final String[] PRIMITIVE_NAMES = {
+		"InsertionSort", "Shellsort", "MergeSort", "Quicksort",
+		"Quicksort/3way", "Quicksort/dual",
+		"LSDRadixSort", "AutoSort", "Introsort", "SampleSort",
+		"SampleSort/Quicksort", "SampleSort/LSDRadixSort"
+	};
+
+	// don't instantiate
+	private SortVerifier() { }
+
+	/**
+	 * @param N = the largest size to check
+	 * @return the sizes to check, in increasing order
+	 */
+	static int[] sizes(int N) {
+		int[] sizes = {
+			0, 1, 2, 3, 4, 7, 8, 9, 12, 13, 15, 16, 17, 31, 32, 33, 63, 64, 65, 100, 1000,
+			2 * RotationMergeSort.CACHE_SIZE + 1, AutoSort.RADIX_MIN - 1, AutoSort.RADIX_MIN, AutoSort.RADIX_MIN + 1,
+			SampleSort.DEFAULT_CUTOFF - 1, SampleSort.DEFAULT_CUTOFF, SampleSort.DEFAULT_CUTOFF + 1, N
+		};
+		Arrays.sort(sizes);
+		int m = 0;
+		for (int n : sizes)
+			if (n <= N && (m == 0 || n != sizes[m-1])) sizes[m++] = n;
+		return Arrays.copyOf(sizes, m);
+	}
+
+	/**
+	 * the SortBenchmark distributions plus "all-equal" and "specials", which
+	 * mixes NaN, -0.0, 0.0 and the infinities in with gaussian keys
+	 */
+	static double[] keys(String distribution, int n) {
+		if (distribution.equals("all-equal")) return new double[n];
+		if (!distribution.equals("specials")) return SortBenchmark.keys(distribution, n);
+		double[] specials = { Double.NaN, -0.0, 0.0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.MIN_VALUE };
+		double[] a = new double[n];
+		for (int i = 0; i < n; i++)
+			a[i] = StdRandom.bernoulli(0.25) ? specials[StdRandom.uniform(specials.length)] : StdRandom.gaussian();
+		return a;
+	}
+
+	/**
+	 * checks every sort at every size up to N on every distribution,
+	 * printing one line per size
+	 * @param N = the largest size to check
+	 * @throws IllegalStateException on the first wrong result
+	 */
+	static void run(int N) {
+		List<String> distributions = new ArrayList<>(Arrays.asList(SortBenchmark.DISTRIBUTIONS));
+		distributions.add("all-equal");
+		distributions.add("specials");
+		checkRefusesPrimitives();
+		checkAuxBufferPool();
+		for (int n : sizes(N)) {
+			for (String distribution : distributions) {
+				StdRandom.setSeed(SortBenchmark.SEED);
+				double[] keys = keys(distribution, n);
+				String input = n + " " + distribution + " keys";
+				Item[] items = new Item[n];
+				for (int i = 0; i < n; i++) items[i] = new Item(keys[i], i);
+
+				checkObjectSorts(items, input);
+				checkSelection(items, input);
+				checkMerges(items, input);
+				checkSortedBuffer(items, input);
+				checkPrimitiveSorts(keys, input);
+				checkRecordSort(keys, input);
+				checkStringSorts(keys, input);
+			}
+			System.out.printf("%-10d ok%n", n);
+		}
+	}
+
+	private static void checkObjectSorts(Item[] input, String what) {
+		int n = input.length, from = n / 4, to = n - n / 4;
+		Item[] ascending = input.clone(), descending = input.clone(), middle = input.clone();
+		Arrays.sort(ascending);
+		Arrays.sort(descending, DESCENDING);
+		Arrays.sort(middle, from, to, DESCENDING);
+
+		for (int k = 0; k < OBJECT_SORTS.length; k++) {
+			SortingAlgorithm alg = OBJECT_SORTS[k];
+			if (alg instanceof InsertionSort && n > SortBenchmark.MAX_QUADRATIC_N) continue;
+			String name = OBJECT_NAMES[k] + " on " + what;
+			Item[] a = input.clone();
+			alg.sort(a);
+			check(name, a, ascending, STABLE[k]);
+			a = input.clone();
+			alg.sort(a, DESCENDING);
+			check(name + " by a Comparator", a, descending, STABLE[k]);
+			a = input.clone();
+			alg.sort(a, from, to, DESCENDING);
+			check(name + " in [" + from + ", " + to + ")", a, middle, STABLE[k]);
+			checkUntouched(name + " in [" + from + ", " + to + ")", a, input, from, to);
+		}
+
+		MergeSort merge = new MergeSort();
+		Item[] a = input.clone();
+		merge.sortBottomUp(a);
+		check("MergeSort.sortBottomUp on " + what, a, ascending, true);
+		a = input.clone();
+		merge.parallelSort(a, SMALL_CUTOFF, ForkJoinPool.commonPool());
+		check("MergeSort.parallelSort on " + what, a, ascending, true);
+		a = input.clone();
+		new Quicksort().parallelSort(a, SMALL_CUTOFF, ForkJoinPool.commonPool());
+		check("Quicksort.parallelSort on " + what, a, ascending, false);
+		for (int arity : new int[] { 2, 3, 4, 8 }) {
+			a = input.clone();
+			MinPQ.heapsort(a, 0, n - 1, DESCENDING, arity);
+			check("MinPQ.heapsort arity=" + arity + " on " + what, a, descending, false);
+		}
+
+		int[] perm = Argsort.argsort(input);
+		a = input.clone();
+		Argsort.apply(perm, a);
+		check("Argsort on " + what, a, ascending, true);
+		a = input.clone();
+		KeySort.sortByDoubleKey(a, x -> x.key);
+		check("KeySort.sortByDoubleKey on " + what, a, ascending, true);
+		Item[] byLong = input.clone();
+		Arrays.sort(byLong, Comparator.comparingLong(x -> (long) x.key));
+		a = input.clone();
+		KeySort.sortByLongKey(a, x -> (long) x.key);
+		checkOrder("KeySort.sortByLongKey on " + what, a, byLong, true, Comparator.comparingLong(x -> (long) x.key));
+	}
+
+	private static void checkSelection(Item[] input, String what) {
+		int n = input.length, k = n / 3;
+		Item[] descending = input.clone();
+		Arrays.sort(descending, DESCENDING);
+
+		Item[] a = input.clone();
+		PartialSort.partialSort(a, k, DESCENDING);
+		check("PartialSort.partialSort k=" + k + " on " + what, Arrays.copyOf(a, k), Arrays.copyOf(descending, k), false);
+		checkPermutation("PartialSort.partialSort k=" + k + " on " + what, a);
+
+		List<Item> top = PartialSort.topK(input, k, DESCENDING);
+		check("PartialSort.topK k=" + k + " on " + what, top.toArray(new Item[0]), Arrays.copyOf(descending, k), false);
+
+		if (n == 0) return;
+		a = input.clone();
+		Item nth = PartialSort.selectNth(a, k, DESCENDING);
+		String name = "PartialSort.selectNth n=" + k + " on " + what;
+		if (DESCENDING.compare(nth, descending[k]) != 0) fail(name, "returned " + nth + " instead of " + descending[k]);
+		for (int i = 0; i < n; i++)
+			if (i < k ? DESCENDING.compare(a[i], nth) > 0 : DESCENDING.compare(a[i], nth) < 0)
+				fail(name, a[i] + " is on the wrong side of " + nth + " at " + i);
+		checkPermutation(name, a);
+	}
+
+	// k sorted runs cut from the input in order, so a stable merge gives back the stable sort
+	private static void checkMerges(Item[] input, String what) {
+		int n = input.length;
+		Item[] ascending = input.clone();
+		Arrays.sort(ascending);
+		for (int k : new int[] { 1, 2, 7, 64 }) {
+			List<Item[]> runs = new ArrayList<>();
+			for (int r = 0; r < k; r++) {
+				Item[] run = Arrays.copyOfRange(input, (int) ((long) n * r / k), (int) ((long) n * (r+1) / k));
+				Arrays.sort(run);
+				runs.add(run);
+			}
+			check("KWayMerge k=" + k + " on " + what, drain(new KWayMerge<Item>(iterators(runs), Comparator.naturalOrder()), n), ascending, true);
+			check("LoserTree k=" + k + " on " + what, drain(new LoserTree<Item>(iterators(runs), Comparator.naturalOrder()), n), ascending, true);
+		}
+	}
+
+	private static List<Iterator<Item>> iterators(List<Item[]> runs) {
+		List<Iterator<Item>> iterators = new ArrayList<>();
+		for (Item[] run : runs) iterators.add(Arrays.asList(run).iterator());
+		return iterators;
+	}
+
+	private static Item[] drain(Iterator<Item> it, int n) {
+		List<Item> items = new ArrayList<>(n);
+		while (it.hasNext()) items.add(it.next());
+		return items.toArray(new Item[0]);
+	}
+
+	private static void checkSortedBuffer(Item[] input, String what) {
+		int n = input.length;
+		Item[] descending = input.clone();
+		Arrays.sort(descending, DESCENDING);
+		for (int batchSize : new int[] { 1, SortedBuffer.DEFAULT_BATCH_SIZE }) {
+			String name = "SortedBuffer batchSize=" + batchSize + " on " + what;
+			SortedBuffer<Item> sb = new SortedBuffer<>(DESCENDING, batchSize);
+			for (Item x : input) sb.insert(x);
+			if (sb.size() != n) fail(name, "has " + sb.size() + " items instead of " + n);
+			List<Item> items = new ArrayList<>(n);
+			for (Item x : sb) items.add(x);
+			check(name, items.toArray(new Item[0]), descending, true);
+
+			int step = Math.max(1, n / 64);
+			for (int k = 0; k < n; k += step) {
+				if (sb.select(k) != descending[k]) fail(name, "select(" + k + ") returned " + sb.select(k) + " instead of " + descending[k]);
+				int rank = k;
+				while (rank > 0 && DESCENDING.compare(descending[rank-1], descending[k]) == 0) rank--;
+				if (sb.rank(descending[k]) != rank) fail(name, "rank(" + descending[k] + ") returned " + sb.rank(descending[k]) + " instead of " + rank);
+			}
+		}
+	}
+
+	private static void checkPrimitiveSorts(double[] keys, String what) {
+		int n = keys.length;
+		int[] ints = new int[n];
+		long[] longs = new long[n];
+		for (int i = 0; i < n; i++) {
+			// the casts saturate, so infinities become the extreme ints and longs
+			ints[i] = (int) (keys[i] * 1000);
+			longs[i] = (long) (keys[i] * 1e12);
+		}
+		int[] sortedInts = ints.clone();
+		long[] sortedLongs = longs.clone();
+		double[] sortedDoubles = keys.clone();
+		Arrays.sort(sortedInts);
+		Arrays.sort(sortedLongs);
+		Arrays.sort(sortedDoubles);
+
+		for (int k = 0; k < PRIMITIVE_SORTS.length; k++) {
+			SortingAlgorithm alg = PRIMITIVE_SORTS[k];
+			if (alg instanceof InsertionSort && n > SortBenchmark.MAX_QUADRATIC_N) continue;
+			String name = PRIMITIVE_NAMES[k] + " on " + what;
+			int[] a = ints.clone();
+			long[] b = longs.clone();
+			double[] c = keys.clone();
+			alg.sort(a);
+			alg.sort(b);
+			alg.sort(c);
+			if (!Arrays.equals(a, sortedInts)) fail(name + " as int[]", "doesn't match Arrays.sort()");
+			if (!Arrays.equals(b, sortedLongs)) fail(name + " as long[]", "doesn't match Arrays.sort()");
+			if (!Arrays.equals(c, sortedDoubles)) fail(name + " as double[]", "doesn't match Arrays.sort()");
+		}
+
+		if (n > SortingNetwork.MAX_SIZE) return;
+		int[] a = ints.clone();
+		long[] b = longs.clone();
+		double[] c = keys.clone();
+		SortingNetwork.sort(a, 0, n - 1);
+		SortingNetwork.sort(b, 0, n - 1);
+		SortingNetwork.sort(c, 0, n - 1);
+		if (!Arrays.equals(a, sortedInts)) fail("SortingNetwork on " + what + " as int[]", "doesn't match Arrays.sort()");
+		if (!Arrays.equals(b, sortedLongs)) fail("SortingNetwork on " + what + " as long[]", "doesn't match Arrays.sort()");
+		if (!Arrays.equals(c, sortedDoubles)) fail("SortingNetwork on " + what + " as double[]", "doesn't match Arrays.sort()");
+	}
+
+	/**
+	 * the pool reuses a released buffer, but never lends out one that's
+	 * still in use, e.g. to a sortBottomUp() called from inside a compareTo()
+	 */
+	private static void checkAuxBufferPool() {
+		AuxBufferPool pool = new AuxBufferPool();
+		Comparable<?>[] outer = pool.acquire(100), inner = pool.acquire(10);
+		if (inner == outer) fail("AuxBufferPool", "lent out the same buffer twice");
+		pool.release(inner, 10);
+		pool.release(outer, 100);
+		if (pool.acquire(50) != outer) fail("AuxBufferPool", "didn't reuse a released buffer");
+		if (pool.allocations() != 2) fail("AuxBufferPool", "counted " + pool.allocations() + " allocations instead of 2");
+		if (pool.bytesAllocated() < 4 * 110) fail("AuxBufferPool", "counted only " + pool.bytesAllocated() + " bytes");
+	}
+
+	/**
+	 * a sort without primitive versions has to say so instead of handing the
+	 * array back unsorted, and InstrumentedSort mustn't count the attempt
+	 */
+	private static void checkRefusesPrimitives() {
+		SortCounters counters = new SortCounters();
+		SortMetrics previous = SortingAlgorithm.getMetrics();
+		SortingAlgorithm.setMetrics(counters);
+		try {
+			for (SortingAlgorithm alg : new SortingAlgorithm[] { new NaturalMergeSort(), new RotationMergeSort(), new StringRadixSort() }) {
+				for (SortingAlgorithm sorter : new SortingAlgorithm[] { alg, new InstrumentedSort(alg) }) {
+					try {
+						sorter.sort(new int[] { 2, 1 });
+					}
+					catch (UnsupportedOperationException e) {
+						continue;
+					}
+					fail(sorter.getClass().getSimpleName() + " on int[]", "returned instead of throwing UnsupportedOperationException");
+				}
+			}
+			if (counters.sorts() != 0) fail("InstrumentedSort", "reported " + counters.sorts() + " sorts that threw");
+		}
+		finally {
+			SortingAlgorithm.setMetrics(previous);
+		}
+	}
+
+	/**
+	 * 16-byte records of an 8-byte key and the record's original index;
+	 * signed keys, so the unsigned order RecordSort uses is the one checked
+	 */
+	private static void checkRecordSort(double[] keys, String what) {
+		int n = keys.length, recordSize = 16;
+		long[] longs = new long[n];
+		Integer[] expected = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			longs[i] = (long) (keys[i] * 1e12);
+			expected[i] = i;
+		}
+		Arrays.sort(expected, (i, j) -> Long.compareUnsigned(longs[i], longs[j]));
+
+		for (RecordSort.Engine engine : RecordSort.Engine.values()) {
+			String name = "RecordSort " + engine + " on " + what;
+			boolean stable = engine != RecordSort.Engine.QUICKSORT;
+			ByteBuffer buffer = ByteBuffer.allocateDirect(n * recordSize);
+			for (int i = 0; i < n; i++) {
+				buffer.putLong(i * recordSize, longs[i]);
+				buffer.putInt(i * recordSize + 8, i);
+			}
+			new RecordSort(recordSize, 0, 8, engine).sort(buffer);
+
+			BitSet seen = new BitSet(n);
+			for (int r = 0; r < n; r++) {
+				long key = buffer.getLong(r * recordSize);
+				int index = buffer.getInt(r * recordSize + 8);
+				if (key != longs[expected[r]]) fail(name, "out of order at " + r);
+				if (stable && index != expected[r]) fail(name, "not stable at " + r);
+				if (index < 0 || index >= n || key != longs[index] || seen.get(index)) fail(name, "record " + r + " is corrupt or duplicated");
+				seen.set(index);
+			}
+		}
+	}
+
+	private static void checkStringSorts(double[] keys, String what) {
+		int n = keys.length, from = n / 4, to = n - n / 4;
+		// base 36 digits of the keys, so few-unique and all-equal keys make long shared prefixes
+		String[] strings = new String[n];
+		for (int i = 0; i < n; i++) strings[i] = Long.toString((long) (keys[i] * 1e6), 36);
+		String[] sorted = strings.clone(), middle = strings.clone();
+		Arrays.sort(sorted);
+		Arrays.sort(middle, from, to);
+
+		for (StringRadixSort.Mode mode : StringRadixSort.Mode.values()) {
+			String name = "StringRadixSort " + mode + " on " + what;
+			StringRadixSort sorter = new StringRadixSort(mode);
+			String[] a = strings.clone();
+			sorter.sort(a);
+			if (!Arrays.equals(a, sorted)) fail(name, "doesn't match Arrays.sort()");
+			a = strings.clone();
+			sorter.sort(a, from, to, Comparator.naturalOrder());
+			if (!Arrays.equals(a, middle)) fail(name + " in [" + from + ", " + to + ")", "doesn't match Arrays.sort()");
+		}
+	}
+
+	/**
+	 * throws unless a has the same keys as expected in the same order and
+	 * holds every item once; if stable, a has to be exactly expected
+	 */
+	private static void check(String what, Item[] a, Item[] expected, boolean stable) {
+		checkOrder(what, a, expected, stable, Comparator.naturalOrder());
+	}
+
+	private static void checkOrder(String what, Item[] a, Item[] expected, boolean stable, Comparator<Item> c) {
+		if (a.length != expected.length) fail(what, "returned " + a.length + " items instead of " + expected.length);
+		for (int i = 0; i < a.length; i++) {
+			if (c.compare(a[i], expected[i]) != 0) fail(what, "out of order at " + i + ": " + a[i] + " where " + expected[i] + " belongs");
+			if (stable && a[i] != expected[i]) fail(what, "not stable at " + i + ": " + a[i] + " where " + expected[i] + " belongs");
+		}
+		checkPermutation(what, a);
+	}
+
+	// throws if any item appears twice; a has as many items as the input, so then it's a permutation of it
+	private static void checkPermutation(String what, Item[] a) {
+		BitSet seen = new BitSet();
+		for (Item x : a) {
+			if (seen.get(x.index)) fail(what, x + " is there twice");
+			seen.set(x.index);
+		}
+	}
+
+	private static void checkUntouched(String what, Item[] a, Item[] input, int from, int to) {
+		for (int i = 0; i < a.length; i++)
+			if ((i < from || i >= to) && a[i] != input[i]) fail(what, "moved " + input[i] + " outside the range at " + i);
+	}
+
+	private static void fail(String what, String message) {
+		throw new IllegalStateException(what + ": " + message);
+	}
+}
@@ -0,0 +1,243 @@
+package com.gommeh.sorting;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A collection that takes items one at a time and can be queried in sorted
+ * order at any moment, without re-sorting everything or paying O(N) per insert.
+ * <p>
+ * Inserts go into a small buffer, kept sorted by binary insertion. When it
+ * fills up it's pushed onto a stack of sorted runs, oldest and largest
+ * first; whenever the newest run is at least as long as the one before it,
+ * the two are merged with MergeSort.merge(), like carrying in a binary
+ * counter. So there are never more than about lg(N / batchSize) runs, each
+ * item is merged O(log N) times in total, and an insert costs O(log N)
+ * amortized compares plus O(batchSize) moves within the buffer.
+ * <p>
+ * The queries treat the buffer as the newest run and never modify the
+ * collection. rank() does one binary search per run, O(log^2 N) compares.
+ * range() and iterator() merge the matching slice of every run lazily with
+ * KWayMerge. select() binary searches each run in turn for the item whose
+ * position in the merged order is k; an item's position is its index in
+ * its own run plus one binary search in every other run. With O(log N)
+ * runs that is O(log^4 N) compares. compact() merges everything into one
+ * run, after which rank() and select() are O(log N). Equal items come out
+ * in the order they were inserted.
+ * <p>
+ * Runs are never modified once built, and iterators copy the slice of the
+ * buffer they need, so an iterator keeps seeing the items that were there
+ * when it was created. Not thread-safe.
+ *
+ * @param <T> the type of item
+ */
+public class SortedBuffer<T> implements Iterable<T> {
+
+	// how many inserts are buffered before they're sorted into a run
+	public static final int DEFAULT_BATCH_SIZE = 32;
+
+	private final Comparator<? super T> c;
+	private final T[] buffer;
+	private int buffered;
+
+	// the sorted runs, oldest first; each is longer than the next
+	private final List<T[]> runs = new ArrayList<>();
+	private int size;
+
+	// scratch space for merge(), grown to the longest run
+	private Object[] aux = new Object[0];
+
+	/**
+	 * orders the items by their natural order; they have to be Comparable
+	 */
+	@SuppressWarnings("unchecked")
+	public SortedBuffer() {
+		this((Comparator<? super T>) Comparator.naturalOrder(), DEFAULT_BATCH_SIZE);
+	}
+
+	public SortedBuffer(Comparator<? super T> c) {
+		this(c, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * @param c = the order of the items
+	 * @param batchSize = how many inserts are buffered before they're sorted into a run
+	 */
+	@SuppressWarnings("unchecked")
+	public SortedBuffer(Comparator<? super T> c, int batchSize) {
+		if (c == null) throw new IllegalArgumentException("comparator must not be null");
+		if (batchSize < 1) throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+		this.c = c;
+		this.buffer = (T[]) new Object[batchSize];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * adds an item, in O(log N) amortized time
+	 * @param item = the item
+	 */
+	public void insert(T item) {
+		if (item == null) throw new IllegalArgumentException("item must not be null");
+		// after any equal items already buffered, so ties stay in insertion order
+		int i = upperBound(runs.size(), item);
+		System.arraycopy(buffer, i, buffer, i + 1, buffered - i);
+		buffer[i] = item;
+		buffered++;
+		size++;
+		if (buffered == buffer.length) flush();
+	}
+
+	/**
+	 * @param key = the key to look for, which doesn't have to be in the collection
+	 * @return how many items are less than key
+	 */
+	public int rank(T key) {
+		if (key == null) throw new IllegalArgumentException("key must not be null");
+		int rank = 0;
+		for (int r = 0; r < runCount(); r++)
+			rank += lowerBound(r, key);
+		return rank;
+	}
+
+	/**
+	 * @param k = the rank, 0 for the smallest item
+	 * @return the item that would be at index k if everything were sorted
+	 */
+	public T select(int k) {
+		if (k < 0 || k >= size) throw new IllegalArgumentException("k must be between 0 and " + (size - 1) + ": " + k);
+		// positions are distinct and increase along each run, so exactly one run holds position k
+		for (int r = 0; r < runCount(); r++) {
+			int lo = 0, hi = length(r);
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (position(r, mid) < k) lo = mid + 1;
+				else hi = mid;
+			}
+			if (lo < length(r) && position(r, lo) == k) return run(r)[lo];
+		}
+		throw new IllegalStateException("no item at position " + k);
+	}
+
+	/**
+	 * where runs[r][i] would be if every run were merged: equal items from
+	 * older runs come before it and equal items from newer runs after it
+	 */
+	private int position(int r, int i) {
+		T item = run(r)[i];
+		int position = i;
+		for (int s = 0; s < r; s++) position += upperBound(s, item);
+		for (int s = r + 1; s < runCount(); s++) position += lowerBound(s, item);
+		return position;
+	}
+
+	/**
+	 * @return the items x with lo <= x <= hi, in order
+	 */
+	public Iterator<T> range(T lo, T hi) {
+		if (lo == null || hi == null) throw new IllegalArgumentException("argument must not be null");
+		List<Iterator<T>> slices = new ArrayList<>(runCount());
+		for (int r = 0; r < runCount(); r++) {
+			int from = lowerBound(r, lo), to = upperBound(r, hi);
+			if (from < to) slices.add(slice(r, from, to));
+		}
+		return new KWayMerge<T>(slices, c);
+	}
+
+	/**
+	 * @return every item, in order
+	 */
+	public Iterator<T> iterator() {
+		List<Iterator<T>> all = new ArrayList<>(runCount());
+		for (int r = 0; r < runCount(); r++)
+			all.add(slice(r, 0, length(r)));
+		return new KWayMerge<T>(all, c);
+	}
+
+	/**
+	 * merges the buffer and every run into a single run, after which rank()
+	 * and select() are one binary search each
+	 */
+	public void compact() {
+		flush();
+		while (runs.size() > 1) mergeTopRuns();
+	}
+
+	// pushes the buffered items, which are already sorted, as a run
+	private void flush() {
+		if (buffered == 0) return;
+		T[] run = Arrays.copyOf(buffer, buffered);
+		Arrays.fill(buffer, 0, buffered, null);
+		buffered = 0;
+		runs.add(run);
+		while (runs.size() > 1 && runs.get(runs.size() - 2).length <= runs.get(runs.size() - 1).length)
+			mergeTopRuns();
+	}
+
+	// replaces the two newest runs by their merge; the older one's items win ties
+	private void mergeTopRuns() {
+		T[] newer = runs.remove(runs.size() - 1);
+		T[] older = runs.remove(runs.size() - 1);
+		T[] merged = Arrays.copyOf(older, older.length + newer.length);
+		System.arraycopy(newer, 0, merged, older.length, newer.length);
+		int mid = older.length - 1;
+		// skip the merge if the runs are already in order
+		if (SortingAlgorithm.less(c, merged[mid+1], merged[mid])) {
+			if (aux.length < merged.length) aux = new Object[merged.length];
+			MergeSort.merge(merged, aux, 0, 0, mid, merged.length - 1, c);
+		}
+		runs.add(merged);
+	}
+
+	// the runs, oldest first, and then the buffer as the newest run if it isn't empty
+	private int runCount() {
+		return buffered > 0 ? runs.size() + 1 : runs.size();
+	}
+
+	private T[] run(int r) {
+		return r < runs.size() ? runs.get(r) : buffer;
+	}
+
+	private int length(int r) {
+		return r < runs.size() ? runs.get(r).length : buffered;
+	}
+
+	// run r[from..to-1]; the buffer's items are copied, since later inserts move them
+	private Iterator<T> slice(int r, int from, int to) {
+		if (r < runs.size()) return Arrays.asList(runs.get(r)).subList(from, to).iterator();
+		return Arrays.asList(Arrays.copyOfRange(buffer, from, to)).iterator();
+	}
+
+	// the index of the first item in run r that isn't less than key
+	private int lowerBound(int r, T key) {
+		T[] run = run(r);
+		int lo = 0, hi = length(r);
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (SortingAlgorithm.less(c, run[mid], key)) lo = mid + 1;
+			else hi = mid;
+		}
+		return lo;
+	}
+
+	// the index of the first item in run r that is greater than key
+	private int upperBound(int r, T key) {
+		T[] run = run(r);
+		int lo = 0, hi = length(r);
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (SortingAlgorithm.less(c, key, run[mid])) hi = mid;
+			else lo = mid + 1;
+		}
+		return lo;
+	}
+}
@@ -1,6 +1,59 @@
 package com.gommeh.sorting;
 
+import java.util.Comparator;
+
 public class SortingAlgorithm {
+
+	// run with -Dcom.gommeh.sorting.metrics=true to turn the instrumentation hooks on;
+	// otherwise this is a constant false and the JIT drops every hook
+	static final boolean METRICS = Boolean.getBoolean("com.gommeh.sorting.metrics");
+
+	private static volatile SortMetrics metrics;
+
+	/**
+	 * registers the listener that the instrumentation hooks report to
+	 * @param listener = the listener, or null to stop reporting
+	 */
+	public static void setMetrics(SortMetrics listener) {
+		metrics = listener;
+	}
+
+	public static SortMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * @return whether the JVM was started with the compare/exchange/write hooks turned on
+	 */
+	public static boolean metricsEnabled() {
+		return METRICS;
+	}
+
+	// the hooks themselves; callers guard them with if (METRICS)
+	static void countCompare() {
+		SortMetrics m = metrics;
+		if (m != null) m.onCompare();
+	}
+
+	static void countExchange() {
+		SortMetrics m = metrics;
+		if (m != null) m.onExchange();
+	}
+
+	static void countWrites(int count) {
+		SortMetrics m = metrics;
+		if (m != null) m.onWrite(count);
+	}
+
+	static void enter() {
+		SortMetrics m = metrics;
+		if (m != null) m.onEnter();
+	}
+
+	static void exit() {
+		SortMetrics m = metrics;
+		if (m != null) m.onExit();
+	}
 	
 	/**
 	 * the actual individual sorting algorithm's code, to be filled in when writing each type of algorithm
@@ -8,6 +61,53 @@ public class SortingAlgorithm {
 	 */
 	void sort(Comparable[] a) {}
 
+	/**
+	 * primitive versions of sort(), so numeric keys can be sorted without
+	 * boxing them into a Comparable[] first
+	 * @param a = the array
+	 * @throws UnsupportedOperationException if the algorithm has no primitive version
+	 */
+	void sort(int[] a) {
+		throw new UnsupportedOperationException(getClass().getSimpleName() + " can't sort an int[]");
+	}
+
+	void sort(long[] a) {
+		throw new UnsupportedOperationException(getClass().getSimpleName() + " can't sort a long[]");
+	}
+
+	void sort(double[] a) {
+		throw new UnsupportedOperationException(getClass().getSimpleName() + " can't sort a double[]");
+	}
+
+	/**
+	 * sorts the array by the given ordering instead of its natural order
+	 * @param a = the array
+	 * @param c = the ordering
+	 */
+	public <T> void sort(T[] a, Comparator<? super T> c) {
+		sort(a, 0, a.length, c);
+	}
+
+	/**
+	 * sorts a[from..to-1] by the given ordering, to be filled in by each algorithm
+	 * @param a = the array
+	 * @param from = the first index, inclusive
+	 * @param to = the last index, exclusive
+	 * @param c = the ordering
+	 * @throws UnsupportedOperationException if the algorithm can't sort by a Comparator
+	 */
+	public <T> void sort(T[] a, int from, int to, Comparator<? super T> c) {
+		throw new UnsupportedOperationException(getClass().getSimpleName() + " can't sort by a Comparator");
+	}
+
+	/**
+	 * throws an IllegalArgumentException unless 0 <= from <= to <= length
+	 */
+	static void checkRange(int length, int from, int to) {
+		if (from < 0 || to > length || from > to)
+			throw new IllegalArgumentException("subarray indices out of bounds: [" + from + ", " + to + ")");
+	}
+
 	/**
 	 * compareTo() Returns a negative integer, zero, or a positive 
 	 * integer as v is less than, equal to, or greater than w.
@@ -16,19 +116,84 @@ public class SortingAlgorithm {
 	 * @return
 	 */
 	static boolean less(Comparable<Comparable<?>> v, Comparable w) {
+		if (METRICS) countCompare();
 		return v.compareTo(w) < 0;
 	}
 
+	static boolean less(int v, int w) {
+		if (METRICS) countCompare();
+		return v < w;
+	}
+
+	static boolean less(long v, long w) {
+		if (METRICS) countCompare();
+		return v < w;
+	}
+
+	/**
+	 * uses the same total order as Double.compare(), so -0.0 comes
+	 * before 0.0 and NaN comes after every other value
+	 * @param v
+	 * @param w
+	 * @return
+	 */
+	static boolean less(double v, double w) {
+		if (METRICS) countCompare();
+		return Double.compare(v, w) < 0;
+	}
+
+	/**
+	 * comparator version of less(), generic so that each caller's
+	 * comparator stays a single type at its call site
+	 * @param c = the ordering
+	 * @param v
+	 * @param w
+	 * @return
+	 */
+	static <T> boolean less(Comparator<? super T> c, T v, T w) {
+		if (METRICS) countCompare();
+		return c.compare(v, w) < 0;
+	}
+
 	/**
 	 * switches two elements in the Comparable with each other
 	 * @param a = the array
 	 * @param i and @param j = the two elements
 	 */
 	static void exch(Comparable[] a, int i, int j) {
+		if (METRICS) countExchange();
 		Comparable t = a[i];
 		a[i] = a[j];
 		a[j] = t;
 	}
+
+	static void exch(Object[] a, int i, int j) {
+		if (METRICS) countExchange();
+		Object t = a[i];
+		a[i] = a[j];
+		a[j] = t;
+	}
+
+	static void exch(int[] a, int i, int j) {
+		if (METRICS) countExchange();
+		int t = a[i];
+		a[i] = a[j];
+		a[j] = t;
+	}
+
+	static void exch(long[] a, int i, int j) {
+		if (METRICS) countExchange();
+		long t = a[i];
+		a[i] = a[j];
+		a[j] = t;
+	}
+
+	static void exch(double[] a, int i, int j) {
+		if (METRICS) countExchange();
+		double t = a[i];
+		a[i] = a[j];
+		a[j] = t;
+	}
 	
 	/** print the array on a single line
 	 * @param a = the array
@@ -47,15 +212,26 @@ public class SortingAlgorithm {
 	 * @return false if they are not, true if they are
 	 */
 	static boolean isSorted(Comparable[] a) {
-		System.out.println("Determining whether the array is sorted...");
-		for (int i = 1; i < a.length; i++) {
-			if (less(a[i], a[i-1])) {
-				System.out.println("The array in question has not been sorted.");
-				return false;
-			}
-		}
-		System.out.println("The array in question has been sorted. :)");
+		for (int i = 1; i < a.length; i++)
+			if (less(a[i], a[i-1])) return false;
+		return true;
+	}
+
+	static boolean isSorted(int[] a) {
+		for (int i = 1; i < a.length; i++)
+			if (less(a[i], a[i-1])) return false;
 		return true;
 	}
-}
 
+	static boolean isSorted(long[] a) {
+		for (int i = 1; i < a.length; i++)
+			if (less(a[i], a[i-1])) return false;
+		return true;
+	}
+
+	static boolean isSorted(double[] a) {
+		for (int i = 1; i < a.length; i++)
+			if (less(a[i], a[i-1])) return false;
+		return true;
+	}
+}
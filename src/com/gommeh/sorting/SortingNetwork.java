@@ -0,0 +1,115 @@
+package com.gommeh.sorting;
+
+import java.util.Arrays;
+
+/**
+ * Sorting networks for small primitive ranges. A network is a fixed list of
+ * compare-exchange steps chosen only by the length of the range, so unlike
+ * insertion sort it never branches on the data: each step is a min and a
+ * max, which the JIT turns into branch-free instructions for int and long.
+ * That makes random keys, whose compares insertion sort can't predict,
+ * cost the same as sorted ones.
+ * <p>
+ * The networks are Batcher's odd-even merge sorts, worked out once for
+ * every length up to MAX_SIZE: 19 steps for 8 items, 63 for 16, 191 for
+ * 32 and 543 for 64, against about N^2/4 compares for insertion sort.
+ * Quicksort, MergeSort and Introsort finish int and long ranges of up to
+ * BASE_CASE_SIZE items with them. Math.min() and Math.max() on doubles
+ * still branch (on NaN and -0.0), so the double network is only about as
+ * fast as insertion sort and the double[] sorts keep using insertion sort.
+ * Comparing the doubles' bits as longs instead, which is branch-free, was
+ * slower still: the conversions cost more than the branches.
+ */
+public class SortingNetwork {
+
+	// the longest range there's a network for
+	public static final int MAX_SIZE = 64;
+
+	// Quicksort and MergeSort hand primitive ranges of at most this many items to a network
+	static final int BASE_CASE_SIZE = 32;
+
+	// NETWORK[n] = the steps for n items, flattened into pairs (i, j) with i < j
+	private static final int[][] NETWORK = new int[MAX_SIZE + 1][];
+
+	static {
+		for (int n = 0; n <= MAX_SIZE; n++)
+			NETWORK[n] = oddEvenMergeSort(n);
+	}
+
+	// don't instantiate
+	private SortingNetwork() { }
+
+	/**
+	 * Batcher's odd-even merge sort for n items: sorts blocks of p = 1, 2, 4, ...
+	 * and merges neighbouring blocks with comparators k = p, p/2, ..., 1 apart,
+	 * leaving out the ones that would reach past n
+	 */
+	private static int[] oddEvenMergeSort(int n) {
+		int[] steps = new int[0];
+		int m = 0;
+		for (int p = 1; p < n; p <<= 1)
+			for (int k = p; k >= 1; k >>= 1)
+				for (int j = k % p; j <= n - 1 - k; j += 2*k)
+					for (int i = 0; i <= Math.min(k - 1, n - j - k - 1); i++)
+						if ((i + j) / (2*p) == (i + j + k) / (2*p)) {
+							if (m == steps.length) steps = Arrays.copyOf(steps, Math.max(16, 2 * m));
+							steps[m++] = i + j;
+							steps[m++] = i + j + k;
+						}
+		return Arrays.copyOf(steps, m);
+	}
+
+	/**
+	 * sorts a[lo..hi]
+	 * @param a = the array
+	 * @param lo and @param hi = the first and last index of the range, at most MAX_SIZE items
+	 */
+	public static void sort(int[] a, int lo, int hi) {
+		int[] steps = network(lo, hi);
+		for (int k = 0; k < steps.length; k += 2) {
+			if (SortingAlgorithm.METRICS) SortingAlgorithm.countCompare();
+			int i = lo + steps[k], j = lo + steps[k+1];
+			int x = a[i], y = a[j];
+			a[i] = Math.min(x, y);
+			a[j] = Math.max(x, y);
+		}
+	}
+
+	public static void sort(long[] a, int lo, int hi) {
+		int[] steps = network(lo, hi);
+		for (int k = 0; k < steps.length; k += 2) {
+			if (SortingAlgorithm.METRICS) SortingAlgorithm.countCompare();
+			int i = lo + steps[k], j = lo + steps[k+1];
+			long x = a[i], y = a[j];
+			a[i] = Math.min(x, y);
+			a[j] = Math.max(x, y);
+		}
+	}
+
+	/**
+	 * doubles are ordered like Double.compare(), so -0.0 comes before 0.0 and
+	 * NaN last. Math.min() and Math.max() already put -0.0 first but would
+	 * turn one NaN into two, so ranges with a NaN in them are insertion sorted.
+	 */
+	public static void sort(double[] a, int lo, int hi) {
+		int[] steps = network(lo, hi);
+		for (int i = lo; i <= hi; i++)
+			if (Double.isNaN(a[i])) {
+				InsertionSort.sort(a, lo, hi);
+				return;
+			}
+		for (int k = 0; k < steps.length; k += 2) {
+			if (SortingAlgorithm.METRICS) SortingAlgorithm.countCompare();
+			int i = lo + steps[k], j = lo + steps[k+1];
+			double x = a[i], y = a[j];
+			a[i] = Math.min(x, y);
+			a[j] = Math.max(x, y);
+		}
+	}
+
+	private static int[] network(int lo, int hi) {
+		int n = hi - lo + 1;
+		if (n > MAX_SIZE) throw new IllegalArgumentException("no sorting network for " + n + " items, at most " + MAX_SIZE);
+		return NETWORK[Math.max(n, 0)];
+	}
+}
@@ -0,0 +1,130 @@
+package com.gommeh.sorting;
+
+import java.util.Comparator;
+
+/**
+ * Radix sorts for String keys, in the same order as String.compareTo.
+ * MSD = most-significant-digit radix sort, one byte of each char at a time
+ * THREE_WAY_QUICK = three-way string quicksort, which partitions on one
+ * char at a time and never re-examines a common prefix
+ * Both hand subarrays of at most CUTOFF strings to insertion sort.
+ */
+public class StringRadixSort extends SortingAlgorithm {
+
+	public enum Mode { MSD, THREE_WAY_QUICK }
+
+	// subarrays this small are left to insertion sort
+	private static final int CUTOFF = 15;
+
+	private static final int R = 256;
+
+	private final Mode mode;
+
+	public StringRadixSort() {
+		this(Mode.THREE_WAY_QUICK);
+	}
+
+	public StringRadixSort(Mode mode) {
+		if (mode == null) throw new IllegalArgumentException("mode must not be null");
+		this.mode = mode;
+	}
+
+	/**
+	 * @param a = the array, which has to be a String[]
+	 */
+	@SuppressWarnings("rawtypes")
+	public void sort(Comparable[] a) {
+		if (!(a instanceof String[])) throw new IllegalArgumentException("StringRadixSort only sorts String[]");
+		sort((String[]) a);
+	}
+
+	public void sort(String[] a) {
+		sort(a, 0, a.length);
+	}
+
+	/**
+	 * radix sorts can only produce String order, so this only accepts
+	 * Comparator.naturalOrder() and a String[]
+	 * @throws UnsupportedOperationException for any other ordering
+	 */
+	public <T> void sort(T[] a, int from, int to, Comparator<? super T> c) {
+		checkRange(a.length, from, to);
+		if (c != Comparator.naturalOrder())
+			throw new UnsupportedOperationException("StringRadixSort only sorts in natural String order");
+		if (!(a instanceof String[])) throw new IllegalArgumentException("StringRadixSort only sorts String[]");
+		sort((String[]) a, from, to);
+	}
+
+	// sorts a[from..to-1]
+	private void sort(String[] a, int from, int to) {
+		if (to - from < 2) return;
+		if (mode == Mode.MSD) {
+			String[] aux = new String[to - from];
+			msd(a, aux, from, to-1, 0);
+		}
+		else {
+			StdRandom.shuffle(a, from, to); // shuffle needed for performance guarantee
+			quick3(a, from, to-1, 0);
+		}
+	}
+
+	/**
+	 * byte d of s, counting two bytes per char (high byte first), or -1
+	 * past the end, so shorter strings sort before their extensions
+	 */
+	private static int byteAt(String s, int d) {
+		int i = d >>> 1;
+		if (i >= s.length()) return -1;
+		char c = s.charAt(i);
+		return (d & 1) == 0 ? c >>> 8 : c & 0xff;
+	}
+
+	// sorts a[lo..hi], whose strings all agree on their first d bytes
+	private static void msd(String[] a, String[] aux, int lo, int hi, int d) {
+		if (hi <= lo + CUTOFF) {
+			InsertionSort.sort(a, lo, hi);
+			return;
+		}
+		if (METRICS) enter();
+		int[] count = new int[R+2];
+		for (int i = lo; i <= hi; i++)
+			count[byteAt(a[i], d) + 2]++;
+		for (int r = 0; r < R+1; r++)
+			count[r+1] += count[r];
+		for (int i = lo; i <= hi; i++)
+			aux[count[byteAt(a[i], d) + 1]++] = a[i];
+		System.arraycopy(aux, 0, a, lo, hi - lo + 1);
+		if (METRICS) countWrites(2 * (hi - lo + 1));
+
+		// count[r] is now where bucket r ends; bucket 0 (ended strings) is done
+		for (int r = 0; r < R; r++)
+			msd(a, aux, lo + count[r], lo + count[r+1] - 1, d+1);
+		if (METRICS) exit();
+	}
+
+	// sorts a[lo..hi], whose strings all agree on their first d chars
+	private static void quick3(String[] a, int lo, int hi, int d) {
+		if (hi <= lo + CUTOFF) {
+			InsertionSort.sort(a, lo, hi);
+			return;
+		}
+		if (METRICS) enter();
+		int lt = lo, gt = hi, i = lo+1;
+		int v = charAt(a[lo], d);
+		while (i <= gt) {
+			int t = charAt(a[i], d);
+			if (METRICS) countCompare();
+			if (t < v) exch(a, lt++, i++);
+			else if (t > v) exch(a, i, gt--);
+			else i++;
+		}
+		quick3(a, lo, lt-1, d);
+		if (v >= 0) quick3(a, lt, gt, d+1);
+		quick3(a, gt+1, hi, d);
+		if (METRICS) exit();
+	}
+
+	private static int charAt(String s, int d) {
+		return d < s.length() ? s.charAt(d) : -1;
+	}
+}